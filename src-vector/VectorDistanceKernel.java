@@ -0,0 +1,126 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// DistanceKernel which calculates as many distances at a time as the CPU's vector registers hold, using the
+// incubating Vector API of JDK 16 and later. Only EUC_2D, CEIL_2D, ATT and EUCLIDEAN instances are vectorised: the
+// coordinates are loaded (or gathered, for a list of cities or a tour) into vectors, and the square root and the
+// rounding of TSPLIB are applied lane by lane. The operations are the same as those of TSPInstance.distance, so every
+// distance is exactly the same as the scalar one. The cities left over after the last full vector are calculated
+// one at a time.
+// This class is compiled separately from the rest of the program, which targets Java 9:
+//   javac --release 17 --add-modules jdk.incubator.vector -cp <classes> -d <classes> src-vector/*.java
+// and is only loaded (by DistanceKernel.vector) when the JVM is started with --add-modules jdk.incubator.vector
+public class VectorDistanceKernel implements DistanceKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    // 2^52: adding it to a non-negative double smaller than it, and subtracting it again, rounds the double to the
+    // nearest whole number, since a double that large has no bits left for a fraction
+    private static final double ROUNDING = 4503599627370496.0;
+
+    private final TSPInstance instance;
+    private final TSPInstance.EdgeWeightType type;
+    // the coordinates of every city
+    private final double[] x;
+    private final double[] y;
+
+    public VectorDistanceKernel(TSPInstance instance) {
+        if (!instance.hasCoordinates()) {
+            throw new IllegalArgumentException("The vector distance kernel needs the coordinates of the cities");
+        }
+        this.instance = instance;
+        this.type = instance.edgeWeightType;
+        this.x = instance.x;
+        this.y = instance.y;
+    }
+
+    @Override
+    public void row(int a, int from, int to, double[] out, int outOffset) {
+        DoubleVector ax = DoubleVector.broadcast(SPECIES, x[a]);
+        DoubleVector ay = DoubleVector.broadcast(SPECIES, y[a]);
+        int j = from;
+        for (int bound = from + SPECIES.loopBound(to - from); j < bound; j += SPECIES.length()) {
+            DoubleVector dx = ax.sub(DoubleVector.fromArray(SPECIES, x, j));
+            DoubleVector dy = ay.sub(DoubleVector.fromArray(SPECIES, y, j));
+            distance(dx, dy).intoArray(out, outOffset + j - from);
+        }
+        for (; j < to; j++) {
+            out[outOffset + j - from] = instance.distance(a, j);
+        }
+    }
+
+    @Override
+    public void gather(int a, int[] cities, int count, double[] out) {
+        DoubleVector ax = DoubleVector.broadcast(SPECIES, x[a]);
+        DoubleVector ay = DoubleVector.broadcast(SPECIES, y[a]);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(count); i < bound; i += SPECIES.length()) {
+            DoubleVector dx = ax.sub(DoubleVector.fromArray(SPECIES, x, 0, cities, i));
+            DoubleVector dy = ay.sub(DoubleVector.fromArray(SPECIES, y, 0, cities, i));
+            distance(dx, dy).intoArray(out, i);
+        }
+        for (; i < count; i++) {
+            out[i] = instance.distance(a, cities[i]);
+        }
+    }
+
+    @Override
+    public double tourLength(int[] tours, int offset, int pathLength) {
+        // the edges from position i to position i+1 of the path, a vector of them at a time
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        int edges = pathLength - 1;
+        int i = 0;
+        for (int bound = SPECIES.loopBound(edges); i < bound; i += SPECIES.length()) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, x, 0, tours, offset + i)
+                    .sub(DoubleVector.fromArray(SPECIES, x, 0, tours, offset + i + 1));
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, y, 0, tours, offset + i)
+                    .sub(DoubleVector.fromArray(SPECIES, y, 0, tours, offset + i + 1));
+            sum = sum.add(distance(dx, dy));
+        }
+        double length = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < edges; i++) {
+            length += instance.distance(tours[offset + i], tours[offset + i + 1]);
+        }
+        // plus the edge from the last city back to the first city
+        return length + instance.distance(tours[offset + pathLength - 1], tours[offset]);
+    }
+
+    // method which returns the distances of the given coordinate differences, rounded as TSPInstance.distance does
+    private DoubleVector distance(DoubleVector dx, DoubleVector dy) {
+        DoubleVector squared = dx.mul(dx).add(dy.mul(dy));
+        switch (type) {
+            case EUC_2D:
+                return floor(squared.lanewise(VectorOperators.SQRT).add(0.5));
+            case CEIL_2D: {
+                DoubleVector d = squared.lanewise(VectorOperators.SQRT);
+                return roundUp(floor(d), d);
+            }
+            case ATT: {
+                DoubleVector r = squared.div(10.0).lanewise(VectorOperators.SQRT);
+                return roundUp(floor(r.add(0.5)), r);
+            }
+            default:
+                return squared.lanewise(VectorOperators.SQRT);
+        }
+    }
+
+    // method which rounds every lane down to a whole number, which for distances (which are never negative) is the
+    // same as the cast to int of TSPInstance.distance. Converting the lanes to longs and back would do the same, but
+    // is not compiled into vector instructions on every CPU, while the additions and comparisons are
+    private static DoubleVector floor(DoubleVector v) {
+        DoubleVector nearest = v.add(ROUNDING).sub(ROUNDING);
+        return nearest.sub(1.0, nearest.compare(VectorOperators.GT, v));
+    }
+
+    // method which adds 1 to every lane of t which is smaller than the same lane of d
+    private static DoubleVector roundUp(DoubleVector t, DoubleVector d) {
+        VectorMask<Double> smaller = t.compare(VectorOperators.LT, d);
+        return t.add(1.0, smaller);
+    }
+
+    @Override
+    public String description() {
+        return "vector, " + SPECIES.length() + " lanes";
+    }
+}
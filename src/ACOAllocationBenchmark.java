@@ -0,0 +1,46 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+// Program which measures how much memory the ACO allocates per iteration on one instance.
+// The ACO is run for N and then for 2N iterations, so that the memory allocated while setting up a run
+// (distances, pheromones, ants, candidate lists) cancels out and only the per-iteration allocation remains.
+// Usage: java -cp MachineLearning1.jar ACOAllocationBenchmark [instance] [iterations]
+// (defaults: TSPinstances/pr1002.tsp, 100 iterations)
+public class ACOAllocationBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        String instance = args.length > 0 ? args[0] : "TSPinstances" + File.separator + "pr1002.tsp";
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        if (!AllocationProbe.isSupported()) {
+            System.out.println("This JVM cannot measure per-thread allocation");
+            return;
+        }
+
+        TSPInstance tspInstance = InputReader.readInstance(instance);
+        DistanceProvider distances = DistanceProviders.create(tspInstance);
+
+        // warm up the JIT compiler (and start the ants' thread pool) before measuring
+        AntColonyOptimisation aco = new AntColonyOptimisation();
+        aco.setIterations(iterations);
+        aco.solve(tspInstance, distances);
+
+        long shortRun = allocatedDuringRun(aco, tspInstance, distances, iterations);
+        long longRun = allocatedDuringRun(aco, tspInstance, distances, 2 * iterations);
+        double bytesPerIteration = (double) (longRun - shortRun) / iterations;
+
+        System.out.println(String.format(Locale.ROOT,
+                "ACO allocation: %s, %d cities, %.1f bytes per iteration (%.1f KB per run of %d iterations)",
+                instance, tspInstance.dimension, bytesPerIteration, shortRun / 1024.0, iterations));
+    }
+
+    // method which returns the number of bytes allocated by one run of the ACO with the given number of iterations
+    private static long allocatedDuringRun(AntColonyOptimisation aco, TSPInstance instance, DistanceProvider distances,
+                                           int iterations) {
+        aco.setIterations(iterations);
+        long before = AllocationProbe.allocatedBytes();
+        aco.solve(instance, distances);
+        return AllocationProbe.allocatedBytes() - before;
+    }
+}
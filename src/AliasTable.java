@@ -0,0 +1,78 @@
+import java.util.Random;
+
+// Alias table (Vose's method) for sampling an index from a discrete distribution in O(1) time.
+// The table is built in O(n) from the weights of the n indexes. Each of its n columns then holds an index, the
+// probability of keeping it, and the 'alias' index chosen otherwise. A sample picks a column uniformly and keeps its
+// index or takes its alias, using 2 random numbers and no search. Building the table again reuses its arrays, so a
+// table which is rebuilt every generation only allocates when the number of indexes grows.
+// Sampling only reads the table, so many threads can sample it at the same time once it has been built.
+public final class AliasTable {
+
+    // for every column: the probability of keeping its own index, and the index taken otherwise
+    private double[] probability = new double[0];
+    private int[] alias = new int[0];
+    // the columns whose probability is below and above the average while the table is built
+    private int[] small = new int[0];
+    private int[] large = new int[0];
+    // the number of indexes of the distribution
+    private int size;
+
+    // method which builds the table for the distribution in which index i has a probability proportional to
+    // weights[i], for the first n weights. The weights must not be negative, and at least one must be positive
+    public void build(double[] weights, int n) {
+        if (probability.length < n) {
+            probability = new double[n];
+            alias = new int[n];
+            small = new int[n];
+            large = new int[n];
+        }
+        double sumOfWeights = 0;
+        for (int i = 0; i < n; i++) {
+            sumOfWeights += weights[i];
+        }
+
+        // scale the weights so that their average is 1, and split the columns into those below and above it
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            probability[i] = weights[i] * n / sumOfWeights;
+            alias[i] = i;
+            if (probability[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        // fill every column below the average with part of a column above it
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            alias[less] = more;
+            probability[more] += probability[less] - 1;
+            if (probability[more] < 1) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // whatever is left is (up to rounding errors) exactly at the average
+        while (largeCount > 0) {
+            probability[large[--largeCount]] = 1;
+        }
+        while (smallCount > 0) {
+            probability[small[--smallCount]] = 1;
+        }
+        size = n;
+    }
+
+    // method which returns a random index, with the probabilities of the last distribution the table was built for
+    public int sample(Random random) {
+        int column = random.nextInt(size);
+        return random.nextDouble() < probability[column] ? column : alias[column];
+    }
+
+    // method which returns the number of indexes of the distribution
+    public int size() {
+        return size;
+    }
+}
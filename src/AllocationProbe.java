@@ -0,0 +1,42 @@
+import java.lang.management.ManagementFactory;
+
+// Helper which reads how many bytes of heap memory have been allocated by all the live threads of the JVM.
+// Taking the difference between two readings gives the memory allocated by the code which ran in between,
+// as long as the threads which did the allocating are still alive at the second reading.
+public class AllocationProbe {
+
+    // the HotSpot extension of the thread MX bean, which can report per-thread allocation (null if unavailable)
+    private static final com.sun.management.ThreadMXBean threads = threadBean();
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotSpotBean = (com.sun.management.ThreadMXBean) bean;
+            if (hotSpotBean.isThreadAllocatedMemorySupported()) {
+                hotSpotBean.setThreadAllocatedMemoryEnabled(true);
+                return hotSpotBean;
+            }
+        }
+        return null;
+    }
+
+    // method which returns whether allocation can be measured on this JVM
+    public static boolean isSupported() {
+        return threads != null;
+    }
+
+    // method which returns the total number of bytes allocated so far by all the live threads (or -1 if unsupported)
+    public static long allocatedBytes() {
+        if (threads == null) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            // threads which died since their IDs were read report -1
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+}
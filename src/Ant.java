@@ -1,46 +1,83 @@
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
 
+// An ant of the ACO. Every ant is created once per run and reset at the start of every iteration, and its tour and
+// visited cities are kept in primitive arrays, so that moving the ants does not allocate any memory.
 public class Ant {
-    // ArrayList of CityIDs which will store the order of cities visited
-    ArrayList<Integer> path;
+    // array of CityIDs which stores the order of cities visited. Only the first pathSize elements are part of the tour
+    int[] path;
+    // the number of cities visited so far during the current tour
+    int pathSize;
     // double which stores the length of the path followed by the ant
     double pathDistance;
     // int which stores on which City the Ant is currently on
     int onCityID;
-    // Set of Integers which stores which cities the ant has already visited during its current tour.
-    // the arraylist 'path' can be used for this same purpose, however with the set, this can be checked in constant time
-    Set<Integer> visitedCities;
+    // array which stores, for every city, the number of the tour during which the ant last visited it.
+    // a city has been visited during the current tour if its stamp is equal to the current tour's stamp,
+    // so all the cities become unvisited again by simply incrementing tourStamp, without clearing the array
+    private final int[] visitedStamps;
+    // the stamp of the current tour
+    private int tourStamp;
+    // scratch buffer in which the ACO keeps the score of every city it considers while choosing the ant's next city,
+    // so that the scores are not calculated twice when the city is chosen probabilistically
+    final double[] scores;
 
-    // constructor for the Ant class
-    public Ant(int startingCity) {
+    // constructor for the Ant class, given the number of cities in the instance
+    public Ant(int numberOfCities) {
+        path = new int[numberOfCities];
+        visitedStamps = new int[numberOfCities];
+        scores = new double[numberOfCities];
+        tourStamp = 0;
+        pathDistance = -1;
+    }
+
+    // method which starts a new tour from the given city, forgetting the previous tour
+    public void reset(int startingCity) {
         // set the length of the path the ant has travelled to -1, a 'null' value
         pathDistance = -1;
-        // set the city the ant is currently on to the one passed as an argument to the constructor,
-        // i.e. the one the ant will start its tour from
-        this.onCityID = startingCity;
-        // initialise the 'path' arraylist to an empty array list, and then add the starting city to the path arraylist
-        path = new ArrayList<>();
-        this.path.add(startingCity);
-        // initialise the visited cities set as an empty set, and add the starting city to it
-        visitedCities = new HashSet<>();
-        visitedCities.add(onCityID);
+        pathSize = 0;
+        // start a new tour stamp, so that every city becomes unvisited. If the stamp wraps around,
+        // the stamps left over from old tours could be equal to it again, so the array is cleared instead
+        tourStamp++;
+        if (tourStamp == Integer.MAX_VALUE) {
+            Arrays.fill(visitedStamps, 0);
+            tourStamp = 1;
+        }
+        // the ant starts its tour on the starting city
+        visit(startingCity);
+    }
+
+    // method which moves the ant to the given city, adding it to the path and marking it as visited
+    public void visit(int city) {
+        path[pathSize++] = city;
+        visitedStamps[city] = tourStamp;
+        onCityID = city;
+    }
+
+    // method which makes this ant hold a copy of the other ant's tour and its length
+    public void copyFrom(Ant other) {
+        System.arraycopy(other.path, 0, path, 0, other.pathSize);
+        pathSize = other.pathSize;
+        pathDistance = other.pathDistance;
+        onCityID = other.onCityID;
+    }
+
+    // method which returns whether the ant has already visited the given city during its current tour
+    public boolean hasVisited(int city) {
+        return visitedStamps[city] == tourStamp;
     }
 
 
     // method which returns the path of an Ant as a string
     public String getPath() {
         StringBuilder string = new StringBuilder();
-        for (int city : path) {
-            string.append((city+1) + " ");
+        for (int i = 0; i < pathSize; i++) {
+            string.append((path[i]+1) + " ");
         }
         return string.toString();
     }
 
     @Override
     public String toString() {
-        return ( Arrays.toString(path.toArray()) + "\t" + pathDistance );
+        return ( Arrays.toString(Arrays.copyOf(path, pathSize)) + "\t" + pathDistance );
     }
 }
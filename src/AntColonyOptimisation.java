@@ -1,18 +1,31 @@
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.DoubleStream;
 
-public class AntColonyOptimisation {
+// The ant colony optimisation (Ant Colony System). An AntColonyOptimisation object holds the pheromone levels and the
+// other state of the run it is performing, so separate objects can run at the same time (see Solver), but one object
+// runs one instance at a time. The ants of every object build their tours on the same shared pool of threads.
+public class AntColonyOptimisation implements Solver {
 
-    // 2D Array of the pheromone level between every pair of cities
-    private static double[][] pheromoneLevels;
-    // 2D-Array of distances between every pair of cities. Used as an optimisation,
-    // in order not to calculate a distance every time it is needed.
-    private static double[][] distanceMatrix;
+    // the pheromone level between every pair of cities (or only of the edges worth keeping, see PheromoneStore).
+    // Updated atomically, since the ants move concurrently
+    private PheromoneStore pheromoneLevels;
+    // the distances between every pair of cities. Used as an optimisation,
+    // in order not to calculate a distance every time it is needed. Shared with the GA (see DistanceProviders)
+    private DistanceProvider distances;
 
     // parameters of ACO
-    // the number of ants that will be simulated. This parameter is called 'm' in literature
-    private static final int numberOfAnts = 10;
+    // the number of ants that will be simulated. This parameter is called 'm' in literature.
+    // by default there is at least one ant for every core, so that every core builds a tour during each iteration
+    private static final int numberOfAnts =
+            Integer.getInteger("tsp.ants", Math.max(10, Runtime.getRuntime().availableProcessors()));
+    // the number of threads on which the ants build their tours
+    private static final int parallelism =
+            Integer.getInteger("tsp.acoThreads", Runtime.getRuntime().availableProcessors());
     // probability that next city will be chosen based off the highest score and not probabilistically
     // i.e. the method chosen to choose the next city will be:
     // (q_0*100)% (90%) that the next city chosen is the one with the highest pheromone level and shortest distance
@@ -22,269 +35,472 @@ public class AntColonyOptimisation {
     // evaporation rate of pheromones
     private static final double alpha = 0.1;
     // tau_0 is the amount of pheromone that is deposited on edges when performing local updates
-    private static double tau_0;
+    private double tau_0;
     // the importance given to the distance between two cities against the pheromone level
     private static final double beta = 2;
+    // the number of nearest neighbours of each city which are considered when choosing the next city
+    private static final int candidateListSize = CandidateLists.configuredSize();
+
+    // the probability that the tour of the best ant of an iteration is improved by local search (2-opt and Or-opt)
+    // before the Global Pheromone Update. Can be set with -Dtsp.acoLocalSearchRate=<rate> (default: 1.0)
+    private static final double localSearchRate =
+            Double.parseDouble(System.getProperty("tsp.acoLocalSearchRate", "1.0"));
+
+    // the nearest neighbours of every city, ordered from the closest to the furthest
+    private int[][] candidateLists;
+    // the score of every candidate edge, kept up to date by the pheromone updates (see ChoiceInfo)
+    private ChoiceInfo choiceInfo;
+
+
+    // when a run stops: after the ants have built their tours 1000 times by default (-Dtsp.acoIterations=<iterations>),
+    // or earlier if one of the limits of TerminationPolicy is given on the command line
+    private TerminationPolicy termination = TerminationPolicy.configured("tsp.acoIterations", 1000);
+    // the pool of threads on which the ants build their tours. It is shared by every run and kept between runs,
+    // so that its threads (and the memory they have allocated) live on from one run to the next
+    private static ForkJoinPool pool;
+    // the tour the next run starts from (null to start from scratch, see warmStart)
+    private int[] warmStartTour;
+    // the name of the telemetry and checkpoint files of the next runs (null for the name of the solver)
+    private String runName;
+
+    // the phases of an iteration whose times are recorded by the telemetry (see Telemetry)
+    private static final int PHASE_CONSTRUCTION = 0;
+    private static final int PHASE_LOCAL_SEARCH = 1;
+    private static final int PHASE_GLOBAL_UPDATE = 2;
+
+
+    // method which sets the number of iterations the next runs of the ACO will perform
+    public void setIterations(int numberOfIterations) {
+        termination = termination.withMaxSteps(numberOfIterations);
+    }
 
+    // method which sets when the next runs of the ACO stop
+    public void setTermination(TerminationPolicy policy) {
+        termination = policy;
+    }
 
-    // the main method of the ACO TSP algorithm. Given an ArrayList of Cities, this method will output the
-    // shortest path found as well as its distance/length
-    public static void ACO(ArrayList<City> cities) {
-        // initialising the matrix which stores the distance between every pair of cities and
-        // initialising the matrix which stores the pheromone level between every pair of cities
-        initialiseDistanceAndPheromoneLevelMatrices(cities);
+    // method which names the telemetry and checkpoint files of the next runs of the ACO, so that runs on the same
+    // instance at the same time (e.g. the jobs of a SolveServer) do not share them
+    public void setRunName(String name) {
+        runName = name;
+    }
+
+    // method which makes the next runs of the ACO start from the given tour: it is the shortest tour found so far,
+    // and pheromone is deposited on its edges as by a Global Pheromone Update, so the first ants are drawn towards
+    // them. It is ignored when the run resumes from a checkpoint
+    @Override
+    public void warmStart(int[] tour) {
+        warmStartTour = tour == null ? null : tour.clone();
+    }
+
+
+    @Override
+    public String name() {
+        return "ACO";
+    }
+
+    // the main method of the ACO TSP algorithm. Given an instance, this method returns the shortest path found during
+    // the run as a TourResult. The run stops according to the termination policy, or as soon as the calling thread
+    // is interrupted (once the ants have finished their current tours)
+    @Override
+    public TourResult solve(TSPInstance instance, DistanceProvider distanceProvider) {
+        long startTime = System.nanoTime();
+        // the cities that need to be visited
+        ArrayList<City> cities = instance.cities();
+        // initialising the distances, pheromone levels and nearest neighbours of this instance
+        initialise(cities, distanceProvider);
+        // the local search used to improve the best ant of each iteration, which also uses the nearest neighbours
+        LocalSearch localSearch = new LocalSearch(distances, candidateLists);
 
         // Declaring an array which will store all the ants being simulated,
-        // and initialising it to have as many elements as specified by the numberOfAnts parameter
+        // and initialising it to have as many elements as specified by the numberOfAnts parameter.
+        // the same ants are reset and reused during every iteration
         Ant[] ants = new Ant[numberOfAnts];
+        for (int j = 0; j < numberOfAnts; j++) {
+            ants[j] = new Ant(cities.size());
+        }
 
-        double L_nn = calculateL_nn(cities.size());
-        // tau_0 = (n*L_nn)^-1
-        tau_0 = 1.0 / ( (double) cities.size() * L_nn );
+        // one task per ant which builds that ant's tour on the pool of threads
+        ForkJoinPool pool = antPool();
+        List<Callable<Object>> tourConstructions = new ArrayList<>();
+        for (int k = 0; k < numberOfAnts; k++) {
+            final int antIndex = k;
+            tourConstructions.add(() -> {
+                constructTour(cities, ants[antIndex]);
+                return null;
+            });
+        }
 
-        // integer storing for how many times the ACO is performed
-        int iterations = 1000;
-        // for loop through all the iterations
-        for (int i = 0; i < iterations; i++) {
-            // generating a new set of ants, with a random starting city
-            for (int j = 0; j < numberOfAnts; j++) {
-                int startingCity = ThreadLocalRandom.current().nextInt(0, cities.size());
-                Ant ant = new Ant(startingCity);
-                ants[j] = ant;
+        // the shortest tour found so far, which is copied out of the ant which found it
+        Ant bestAnt = new Ant(cities.size());
+        bestAnt.pathDistance = Double.POSITIVE_INFINITY;
+        TerminationPolicy.Tracker progress = termination.start();
+
+        // carry on from the checkpoint of a previous run, if there is one to resume from
+        String filesName = runName == null ? name() : runName;
+        Checkpoint checkpoint = Checkpoint.open(filesName, instance);
+        ByteBuffer saved = checkpoint.resume(cities.size());
+        if (saved != null) {
+            readCheckpoint(saved, bestAnt, progress);
+        } else if (warmStartTour != null && warmStartTour.length == cities.size()) {
+            bestAnt.reset(warmStartTour[0]);
+            for (int i = 1; i < warmStartTour.length; i++) {
+                bestAnt.visit(warmStartTour[i]);
             }
+            bestAnt.pathDistance = routeDistance(bestAnt);
+            pheromoneLevels.keepTour(bestAnt.path, bestAnt.pathSize);
+            performGlobalPheromoneUpdate(bestAnt);
+        }
 
-            // repeat this for as many cities need to be visited or 'traversed'
-            for (int j = 1; j < cities.size(); j++) {
-                // for every ant
-                for (int k = 0; k < ants.length; k++) {
-                    // move them to the next city using the nextCity method
-                    int nextCity = nextCity(cities, ants[k]);
-
-                    // perform a Local Pheromone Update on the path between the current city, and the next city
-                    performLocalPheromoneUpdate(ants[k].onCityID, nextCity);
-
-                    // update the city the ant is on to the next city in the path
-                    ants[k].onCityID = nextCity;
-                    // add the nextCity to the ant's path
-                    ants[k].path.add(nextCity);
-                    // add the nextCity to the set of the ant's visitedCities
-                    ants[k].visitedCities.add(nextCity);
+        // for loop through all the iterations
+        try (Telemetry telemetry = Telemetry.start(filesName, instance.name, new String[] {"pheromoneEntropy"},
+                "construction", "localSearch", "globalUpdate")) {
+            for (int i = progress.steps(); !progress.isDone(); i++) {
+                long time = telemetry.now();
+                // starting every ant on a new tour, from a random starting city
+                for (int j = 0; j < numberOfAnts; j++) {
+                    int startingCity = ThreadLocalRandom.current().nextInt(0, cities.size());
+                    ants[j].reset(startingCity);
                 }
-            }
-            // perform a Local Pheromone Update on the paths between each ant's last city and its first city
-            for (int k = 0; k < ants.length; k++) {
-                performLocalPheromoneUpdate(ants[k].path.get( cities.size()-1 ), ants[k].path.get(0));
-            }
-
-            // calculate path distance of every ant
-            for (int j = 0; j < ants.length; j++) {
-                ants[j].pathDistance = routeDistance(ants[j]);
-            }
 
-            // perform a Global Pheromone Update on all of the edges on the path of the best Ant
-            // find the best ant:
-            double minDistance = ants[0].pathDistance;
-            int minAnt = 0;
-            for (int j = 1; j < ants.length; j++) {
-                if (ants[j].pathDistance < minDistance) {
-                    minDistance = ants[j].pathDistance;
-                    minAnt = j;
+                // let every ant build its tour (and calculate its length) concurrently, and wait until they all finish
+                runAll(pool, tourConstructions);
+                time = telemetry.lap(PHASE_CONSTRUCTION, time);
+
+                // perform a Global Pheromone Update on all of the edges on the path of the best Ant
+                // find the best ant:
+                double minDistance = ants[0].pathDistance;
+                int minAnt = 0;
+                for (int j = 1; j < ants.length; j++) {
+                    if (ants[j].pathDistance < minDistance) {
+                        minDistance = ants[j].pathDistance;
+                        minAnt = j;
+                    }
+                }
+                // improve the best ant's tour using local search, so that the pheromone is deposited on a better tour
+                if (localSearchRate > 0 && ThreadLocalRandom.current().nextDouble() < localSearchRate) {
+                    ants[minAnt].pathDistance -= localSearch.improve(ants[minAnt].path);
+                }
+                time = telemetry.lap(PHASE_LOCAL_SEARCH, time);
+                // keep a copy of the best ant's tour if it is the shortest found so far,
+                // and make sure the pheromone store keeps the levels of its edges
+                if (ants[minAnt].pathDistance < bestAnt.pathDistance) {
+                    bestAnt.copyFrom(ants[minAnt]);
+                    pheromoneLevels.keepTour(bestAnt.path, bestAnt.pathSize);
+                }
+                // perform the Global Pheromone Update
+                performGlobalPheromoneUpdate(ants[minAnt]);
+                telemetry.lap(PHASE_GLOBAL_UPDATE, time);
+                progress.step(numberOfAnts, bestAnt.pathDistance);
+                if (telemetry.shouldSample(i, progress.isDone())) {
+                    double sumOfDistances = 0;
+                    for (Ant ant : ants) {
+                        sumOfDistances += ant.pathDistance;
+                    }
+                    telemetry.record(i, bestAnt.pathDistance, sumOfDistances / ants.length, pheromoneEntropy());
+                }
+                if (checkpoint.shouldSave(i, progress.isDone())) {
+                    writeCheckpoint(checkpoint, bestAnt, progress);
                 }
             }
-            // perform the Global Pheromone Update
-            performGlobalPheromoneUpdate(ants[minAnt]);
         }
 
-        // find the ant with the shortest path
-        double minDistance = ants[0].pathDistance;
-        int minAnt = 0;
-        for (int j = 1; j < ants.length; j++) {
-            if (ants[j].pathDistance < minDistance) {
-                minDistance = ants[j].pathDistance;
-                minAnt = j;
+        // return the shortest path, so that its path and total distance can be output
+        return new TourResult(name(), instance.name, Arrays.copyOf(bestAnt.path, bestAnt.pathSize),
+                bestAnt.pathDistance, progress.steps(), progress.evaluations(), progress.reason(),
+                (System.nanoTime() - startTime) / 1000000);
+    }
+
+
+    // method which writes the progress of the run, tau_0, the best tour found so far and the pheromone levels to the
+    // checkpoint. This is only called between iterations, while no ant is moving
+    private void writeCheckpoint(Checkpoint checkpoint, Ant bestAnt, TerminationPolicy.Tracker progress) {
+        long bytes = TerminationPolicy.Tracker.CHECKPOINT_BYTES + 2 * Double.BYTES + Integer.BYTES
+                + (long) bestAnt.pathSize * Integer.BYTES + pheromoneLevels.checkpointBytes();
+        checkpoint.save(bestAnt.path.length, bytes, buffer -> {
+            progress.writeTo(buffer);
+            buffer.putDouble(tau_0);
+            buffer.putDouble(bestAnt.pathDistance).putInt(bestAnt.pathSize);
+            for (int i = 0; i < bestAnt.pathSize; i++) {
+                buffer.putInt(bestAnt.path[i]);
             }
+            pheromoneLevels.writeTo(buffer);
+        });
+    }
+
+    // method which restores the progress of the run, tau_0, the best tour and the pheromone levels from a checkpoint,
+    // and calculates the scores of the candidate edges again from the restored levels
+    private void readCheckpoint(ByteBuffer saved, Ant bestAnt, TerminationPolicy.Tracker progress) {
+        progress.readFrom(saved);
+        tau_0 = saved.getDouble();
+        bestAnt.pathDistance = saved.getDouble();
+        bestAnt.pathSize = saved.getInt();
+        for (int i = 0; i < bestAnt.pathSize; i++) {
+            bestAnt.path[i] = saved.getInt();
+        }
+        pheromoneLevels.readFrom(saved);
+        choiceInfo = new ChoiceInfo(candidateLists, distances, beta, pheromoneLevels);
+    }
+
+
+    // method which returns the pool of threads shared by every run, starting it the first time it is needed
+    private static synchronized ForkJoinPool antPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism);
         }
-        // and output its path and total distance
-        System.out.println(ants[minAnt].getPath());
-        System.out.println("Total Route Distance: " + ants[minAnt].pathDistance);
+        return pool;
     }
 
 
-    // method which calculates the Euclidean Distance between every pair of cities,
-    // such that the array of distances can be referred to in constant time
-    // also initialise the pheromone level between every pair of cities to a minuscule amount
-    private static void initialiseDistanceAndPheromoneLevelMatrices(ArrayList<City> cities) {
-        // initialise the distanceMatrix as a new empty square 2D array, according to how many cities there are
-        distanceMatrix = new double[cities.size()][cities.size()];
-        // initialise the pheromoneLevels as a new empty square 2D array, according to how many cities there are
-        pheromoneLevels = new double[cities.size()][cities.size()];
+    // method which prepares the state of the ACO for the given instance. This is also used on its own by Benchmarks
+    void initialise(ArrayList<City> cities, DistanceProvider distanceProvider) {
+        // using the distances which were calculated for this instance
+        distances = distanceProvider;
+        // finding the nearest neighbours of every city, which are the cities an ant will consider moving to first
+        candidateLists = CandidateLists.build(cities, distances, candidateListSize);
+        // initialising the store of the pheromone level between every pair of cities
+        // initially the pheromone level between every pair of cities is set to a very small level
+        pheromoneLevels = PheromoneStore.create(candidateLists, 0.000000001, alpha);
+        // calculating the heuristic part of the score of every candidate edge once
+        choiceInfo = new ChoiceInfo(candidateLists, distances, beta, pheromoneLevels);
 
-        for (int i = 0; i < cities.size(); i++) {
-            for (int j = 0; j < cities.size(); j++) {
-                // check if the distance between 2 cities has already been calculated
-                if (distanceMatrix[i][j] == 0.0) {
-                    // calculate the distance between cities i and j
-                    distanceMatrix[i][j] = Location.distance(cities.get(i).location, cities.get(j).location);
-                    // set the distance between cities j and i to the distance between cities i and j,
-                    // as these will always be equal given that this is a Symmetric TSP
-                    distanceMatrix[j][i] = distanceMatrix[i][j];
-
-                    // initially set the pheromone level between every pair of cities to a very small level
-                    pheromoneLevels[i][j] = 0.000000001;
-                    pheromoneLevels[j][i] = 0.000000001;
+        double L_nn = calculateL_nn(cities);
+        // tau_0 = (n*L_nn)^-1
+        tau_0 = 1.0 / ( (double) cities.size() * L_nn );
+    }
+
+
+    // method which returns how evenly the pheromone is spread over the candidate edges of every city, as the entropy
+    // of the pheromone levels of each candidate list normalised to [0, 1] and averaged over all the cities.
+    // it starts at 1 (every candidate is equally likely) and falls towards 0 as the colony converges on one tour
+    private double pheromoneEntropy() {
+        double sumOfEntropies = 0;
+        int lists = 0;
+        for (int r = 0; r < candidateLists.length; r++) {
+            int[] candidates = candidateLists[r];
+            if (candidates.length < 2) {
+                continue;
+            }
+            double sumOfLevels = 0;
+            for (int s : candidates) {
+                sumOfLevels += pheromoneLevels.get(r, s);
+            }
+            double entropy = 0;
+            for (int s : candidates) {
+                double p = pheromoneLevels.get(r, s) / sumOfLevels;
+                if (p > 0) {
+                    entropy -= p * Math.log(p);
                 }
             }
+            sumOfEntropies += entropy / Math.log(candidates.length);
+            lists++;
         }
+        return lists == 0 ? 0 : sumOfEntropies / lists;
     }
 
 
-    // method which returns which city the ant will go to next
-    private static int nextCity(ArrayList<City> cities, Ant ant) {
-        // int which will store the city that the ant will go to next
-        int nextCity;
+    // method which runs all the given tasks on the pool and waits for all of them to finish.
+    // if the calling thread is interrupted, it still waits for the tasks (which only take one tour each), so that no
+    // ant is left running once the run has returned, and then sets the thread's interrupt flag again
+    private static void runAll(ForkJoinPool pool, List<Callable<Object>> tasks) {
+        boolean interrupted = false;
+        try {
+            for (Future<Object> future : pool.invokeAll(tasks)) {
+                while (true) {
+                    try {
+                        future.get();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("an ant failed to build its tour", e.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 
-        // array which will store the score of every city that the ant has not yet visited
-        double[] score = new double[cities.size()];
 
-        // calculate the 'score' of each city
-        for (int i = 0; i < cities.size(); i++) {
-            // if the ant hasn't visited a city
-            if (!ant.visitedCities.contains(i)) {
-                // set the probability of going to a city as the pheromone level between the ant's
-                // current city and that city
-                double tau = pheromoneLevels[ant.onCityID][i];
-                double eta = 1 / distanceMatrix[ant.onCityID][i];
-                score[i] = tau * Math.pow(eta, beta);
-            }
+    // method which moves an ant through every city, performing a Local Pheromone Update on every edge it uses,
+    // and then calculates the length of its tour. Several ants run this method at the same time
+    private void constructTour(ArrayList<City> cities, Ant ant) {
+        // repeat this for as many cities need to be visited or 'traversed'
+        for (int j = 1; j < cities.size(); j++) {
+            // move the ant to the next city using the nextCity method
+            int nextCity = nextCity(cities, ant);
+
+            // perform a Local Pheromone Update on the path between the current city, and the next city
+            performLocalPheromoneUpdate(ant.onCityID, nextCity);
+
+            // move the ant to the next city, adding it to the ant's path and marking it as visited
+            ant.visit(nextCity);
         }
+        // perform a Local Pheromone Update on the path between the ant's last city and its first city
+        performLocalPheromoneUpdate(ant.path[cities.size()-1], ant.path[0]);
 
+        // calculate the path distance of the ant
+        ant.pathDistance = routeDistance(ant);
+    }
+
+
+    // method which returns which city the ant will go to next.
+    // only the nearest neighbours of the ant's current city are considered, unless the ant has already visited all of them
+    int nextCity(ArrayList<City> cities, Ant ant) {
         double q = ThreadLocalRandom.current().nextDouble();
 
-        if (q <= q_0) {
-            // choose the city with the highest 'score' as the next city the ant will visit
-            double maxScore = score[0];
-            nextCity = 0;
-            for (int i = 1; i < score.length; i++) {
-                if (score[i] > maxScore) {
-                    maxScore = score[i];
-                    nextCity = i;
+        // choose the next city from the candidate list of the current city
+        int nextCity = nextCandidateCity(ant, q <= q_0);
+        // if every candidate was already visited, consider every city instead
+        if (nextCity == -1) {
+            nextCity = nextCityFromAllCities(cities, ant, q <= q_0);
+        }
+
+        return nextCity;
+    }
+
+
+    // method which returns the 'score' of moving from city r to city s, favouring edges with higher levels of
+    // pheromone and shorter distances. Only used for edges which are not in r's candidate list (see ChoiceInfo)
+    private double score(int r, int s) {
+        double tau = pheromoneLevels.get(r, s);
+        return tau * ChoiceInfo.heuristic(distances.distance(r, s), beta);
+    }
+
+
+    // method which chooses the next city out of the unvisited cities in the candidate list of the ant's current city.
+    // returns -1 if all the candidates have already been visited
+    private int nextCandidateCity(Ant ant, boolean chooseBest) {
+        int[] candidates = candidateLists[ant.onCityID];
+
+        // find the unvisited candidate with the highest score, and the sum of the scores of all unvisited candidates.
+        // the scores are kept in the ant's scratch buffer for choosing probabilistically
+        int bestCity = -1;
+        double maxScore = -1;
+        double sumOfScores = 0;
+        for (int slot = 0; slot < candidates.length; slot++) {
+            int city = candidates[slot];
+            if (!ant.hasVisited(city)) {
+                double score = choiceInfo.score(ant.onCityID, slot);
+                ant.scores[city] = score;
+                sumOfScores += score;
+                if (score > maxScore) {
+                    maxScore = score;
+                    bestCity = city;
                 }
             }
-        } else {
-            // find the total score to use as a denominator
-            double sumOfScores = DoubleStream.of(score).sum();
-
-            // declaring an array which will store every city's cumulative probability
-            double[] cumulativeProbability = new double[score.length];
-            // set the cumulative probability of the first city as its score divided by the sum of scores
-            cumulativeProbability[0] = score[0] / sumOfScores;
-            // set the cumulative probability of every other city as the cumulative probability of the previous city
-            // + that probability (i.e. its score divided by the total score)
-            for (int i = 1; i < cumulativeProbability.length; i++) {
-                cumulativeProbability[i] = cumulativeProbability[i-1] + (score[i] / sumOfScores);
+        }
+
+        if (chooseBest || bestCity == -1) {
+            return bestCity;
+        }
+
+        // choose the next city probabilistically, where each candidate's probability is its share of the total score
+        double random = ThreadLocalRandom.current().nextDouble() * sumOfScores;
+        double cumulativeScore = 0;
+        for (int city : candidates) {
+            if (!ant.hasVisited(city)) {
+                cumulativeScore += ant.scores[city];
+                if (random <= cumulativeScore) {
+                    return city;
+                }
             }
+        }
+        // only reached through rounding errors, in which case the best candidate is returned
+        return bestCity;
+    }
 
-            // choose the next city based on the probabilities
-            double random = ThreadLocalRandom.current().nextDouble();
 
-            nextCity = 0;
-            while (random > cumulativeProbability[nextCity]) {
-                nextCity++;
+    // method which chooses the next city out of all the cities the ant has not yet visited.
+    // the scores are kept in the ant's scratch buffer, so that they are only calculated once and no memory is allocated
+    private int nextCityFromAllCities(ArrayList<City> cities, Ant ant, boolean chooseBest) {
+        // int which will store the city that the ant will go to next
+        int nextCity = -1;
+
+        // find the unvisited city with the highest 'score', and the sum of the scores of all the unvisited cities
+        double maxScore = -1;
+        double sumOfScores = 0;
+        for (int i = 0; i < cities.size(); i++) {
+            // if the ant hasn't visited a city
+            if (!ant.hasVisited(i)) {
+                double score = score(ant.onCityID, i);
+                ant.scores[i] = score;
+                sumOfScores += score;
+                if (score > maxScore) {
+                    maxScore = score;
+                    nextCity = i;
+                }
             }
         }
 
+        if (chooseBest) {
+            // choose the city with the highest 'score' as the next city the ant will visit
+            return nextCity;
+        }
+
+        // choose the next city based on the probabilities, where each city's probability is its score divided by
+        // the sum of scores, by walking through the cumulative scores until the random point is passed
+        double random = ThreadLocalRandom.current().nextDouble() * sumOfScores;
+        double cumulativeScore = 0;
+        for (int i = 0; i < cities.size(); i++) {
+            if (!ant.hasVisited(i)) {
+                cumulativeScore += ant.scores[i];
+                if (random <= cumulativeScore) {
+                    return i;
+                }
+            }
+        }
+        // only reached through rounding errors, in which case the city with the highest score is returned
         return nextCity;
     }
 
 
-    // method which performs a local pheromone update given the ID of two cities
-    private static void performLocalPheromoneUpdate(int cityA, int cityB){
-        double updatedPheromoneLevel = (1.0-alpha) * pheromoneLevels[cityA][cityB];
-        updatedPheromoneLevel += ( alpha * tau_0 );
-
-        pheromoneLevels[cityA][cityB] = updatedPheromoneLevel;
-        pheromoneLevels[cityB][cityA] = updatedPheromoneLevel;
+    // method which performs a local pheromone update given the ID of two cities.
+    // the update is atomic, so ants moving at the same time over the same edge do not lose each other's updates
+    void performLocalPheromoneUpdate(int cityA, int cityB){
+        choiceInfo.update(cityA, cityB, pheromoneLevels.update(cityA, cityB, tau_0));
     }
 
 
-    // method which performs a local pheromone update given the ID of two cities
-    private static void performGlobalPheromoneUpdate(Ant bestAnt){
+    // method which performs a global pheromone update on every edge on the path of the best ant.
+    // this is only called once all the ants have finished their tours
+    void performGlobalPheromoneUpdate(Ant bestAnt){
+        double deposit = 1.0 / bestAnt.pathDistance;
+
         // perform the Global Pheromone Update on all the edges inside the best ant's path
-        for (int j = 0; j < bestAnt.path.size()-1; j++) {
-            int cityR = bestAnt.path.get(j);
-            int cityS = bestAnt.path.get(j+1);
-
-            pheromoneLevels[cityR][cityS] *= 1.0 - alpha;
-            pheromoneLevels[cityR][cityS] += ( alpha * (1.0/bestAnt.pathDistance) );
-            // since this is a symmetric TSP, perform the pheromone update both ways
-            pheromoneLevels[cityS][cityR] = pheromoneLevels[cityR][cityS];
+        // (since this is a symmetric TSP, the update applies both ways)
+        for (int j = 0; j < bestAnt.pathSize-1; j++) {
+            globalPheromoneUpdate(bestAnt.path[j], bestAnt.path[j+1], deposit);
         }
         // perform the Global Pheromone Update on the edge from the last city to the first
-        int cityR = bestAnt.path.get( bestAnt.path.size()-1 );
-        int cityS = bestAnt.path.get(0);
-        pheromoneLevels[cityR][cityS] *= 1.0 - alpha;
-        pheromoneLevels[cityR][cityS] += ( alpha * (1.0/bestAnt.pathDistance) );
-        pheromoneLevels[cityS][cityR] = pheromoneLevels[cityR][cityS];
+        globalPheromoneUpdate(bestAnt.path[bestAnt.pathSize-1], bestAnt.path[0], deposit);
     }
 
+    private void globalPheromoneUpdate(int cityA, int cityB, double deposit) {
+        choiceInfo.update(cityA, cityB, pheromoneLevels.update(cityA, cityB, deposit));
+    }
 
-    // method which calculates the total distance travelled by an ant on its tour
-    private static double routeDistance(Ant ant) {
-        double totalDistance = 0.0;
-
-        // the sum of the distances between every 2 successive cities in a path
-        for (int i = 0; i < ant.path.size()-1; i++) {
-            totalDistance += distanceMatrix[ant.path.get(i)][ant.path.get(i+1)];
-        }
-        // plus the distance between the last city in the path back to the first city in the path
-        totalDistance += distanceMatrix[ant.path.get(ant.path.size()-1)][ant.path.get(0)];
 
-        return totalDistance;
+    // method which calculates the total distance travelled by an ant on its tour
+    double routeDistance(Ant ant) {
+        // the sum of the distances between every 2 successive cities in a path, plus the distance between the last
+        // city in the path back to the first city in the path
+        return distances.tourLength(ant.path, 0, ant.pathSize);
     }
 
 
     // Method which first calculates a path through all the cities using the Nearest Neighbour Algorithm
-    // then returns the parameter L_nn, which is the inverse of the distance of that path
-    private static double calculateL_nn(int pathLength){
-
-        // declaring the city the Nearest Neighbour Algorithm Ant will start from
-        int startingCity = ThreadLocalRandom.current().nextInt(0, pathLength);
-
-        // set the currentCity as the Starting City
-        int currentCity = startingCity;
-        // declaring an Ant which will store the path followed by the nearest neighbour algorithm
-        // initialise the first city in the path as the startingCity
-        Ant nn = new Ant(startingCity);
-
-        // Declare a new Set of unvisitedCities, and fill it with all the city IDs
-        Set<Integer> unvisitedCities = new HashSet<>();
-        for (int i = 0; i < pathLength; i++) {
-            unvisitedCities.add(i);
-        }
-        // remove the startingCity from the set of unvisitedCities
-        unvisitedCities.remove(startingCity);
-
-        // for the length of the path
-        for (int i = 1; i < pathLength; i++) {
-            // initially set the closestCity to a random city from the set of unvisitedCities
-            int closestCity = unvisitedCities.iterator().next();
-            // loop through every unvisitedCity to find the closestCity
-            for (Integer city : unvisitedCities) {
-                // if the distance between the currentCity and the unvisitedCity is < the distance between
-                // the currentCity and the closestCity
-                if (distanceMatrix[currentCity][city] < distanceMatrix[currentCity][closestCity]) {
-                    // set thet unvisitedCity as the closestCity
-                    closestCity = city;
-                }
-            }
-            // add the closestCity as the next city in the path
-            nn.path.add(closestCity);
-            // make the currentCity for the next iteration the current closestCity
-            currentCity = closestCity;
-            // remove the closestCity from the set of unvisitedCities
-            unvisitedCities.remove(closestCity);
-        }
+    // then returns the parameter L_nn, which is the length of that path.
+    // the tour is built in about O(n log n) using the candidate lists (see ConstructionHeuristics)
+    private double calculateL_nn(ArrayList<City> cities){
+
+        // declaring the city the Nearest Neighbour Algorithm will start from
+        int startingCity = ThreadLocalRandom.current().nextInt(0, cities.size());
 
-        return routeDistance(nn);
+        ConstructionHeuristics heuristics = new ConstructionHeuristics(cities, distances, candidateLists);
+        return heuristics.length(heuristics.nearestNeighbour(startingCity));
     }
 }
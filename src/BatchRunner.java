@@ -0,0 +1,151 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+// Program which reads many instances and solves each of them with both algorithms at the same time, on a bounded
+// number of worker threads. Every instance is read and its distances are built by one task, after which one task
+// per algorithm solves it using a new solver object, so the tasks of different instances overlap freely. Since the
+// distances of a large instance take a lot of memory, only as many instances as there are workers are read ahead: the
+// next instance is only read once every solver has finished with an earlier one.
+// Usage: java -cp MachineLearning1.jar BatchRunner [instance files or directories...]   (default: TSPinstances)
+// The number of workers can be set with -Dtsp.batchWorkers=<threads> (default: the number of cores). Each GA then
+// uses (cores / workers) threads, and the ants of every ACO share the ACO's own pool of threads.
+public class BatchRunner {
+
+    // the number of tasks which run at the same time
+    private final int workers;
+
+    public BatchRunner(int workers) {
+        this.workers = Math.max(1, workers);
+    }
+
+    public static void main(String[] args) {
+        List<File> instances = instanceFiles(args.length > 0 ? Arrays.asList(args) : Arrays.asList("TSPinstances"));
+        BatchRunner runner = new BatchRunner(
+                Integer.getInteger("tsp.batchWorkers", Runtime.getRuntime().availableProcessors()));
+        int gaThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / runner.workers);
+
+        List<Supplier<Solver>> solvers = new ArrayList<>();
+        solvers.add(() -> {
+            GeneticAlgorithm ga = new GeneticAlgorithm();
+            ga.setParallelism(gaThreads);
+            return CachingSolver.configured(ga, "");
+        });
+        solvers.add(() -> CachingSolver.configured(new AntColonyOptimisation(), ""));
+
+        long startTime = System.nanoTime();
+        List<TourResult> results = runner.run(instances, solvers);
+        long time = (System.nanoTime() - startTime) / 1000000;
+
+        long sumOfRunTimes = 0;
+        for (TourResult result : results) {
+            sumOfRunTimes += result.timeMillis;
+        }
+        System.out.println(results.size() + " runs in " + time + "ms on " + runner.workers + " workers ("
+                + sumOfRunTimes + "ms of solving)");
+    }
+
+    // method which solves every instance with every solver, and returns the results ordered by instance and then by
+    // solver. Every run uses a new solver object from the suppliers. Instances which cannot be read are reported and
+    // skipped, and every result is printed as soon as it is available
+    public List<TourResult> run(List<File> instances, List<Supplier<Solver>> solvers) {
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        // one permit for every instance which may be in memory at the same time. The permits are taken by this thread
+        // rather than by the tasks, so that the workers never wait for a permit which only their own tasks can return
+        Semaphore inMemory = new Semaphore(workers);
+        try {
+            List<CompletableFuture<TourResult>> runs = new ArrayList<>();
+            for (File file : instances) {
+                inMemory.acquireUninterruptibly();
+                CompletableFuture<Problem> problem = CompletableFuture.supplyAsync(() -> Problem.read(file), executor);
+                problem.whenComplete((loaded, failure) -> {
+                    if (failure != null) {
+                        System.out.println("Skipping " + file + ": " + rootCause(failure));
+                    }
+                });
+                List<CompletableFuture<TourResult>> solves = new ArrayList<>();
+                for (Supplier<Solver> solver : solvers) {
+                    solves.add(problem.thenApplyAsync(loaded -> {
+                        TourResult result = solver.get().solve(loaded.instance, loaded.distances);
+                        System.out.println(result);
+                        return result;
+                    }, executor));
+                }
+                // the instance and its distances are no longer needed once every solver is done with it (or it could
+                // not be read)
+                CompletableFuture.allOf(solves.toArray(new CompletableFuture<?>[0]))
+                        .whenComplete((done, failure) -> inMemory.release());
+                runs.addAll(solves);
+            }
+
+            List<TourResult> results = new ArrayList<>();
+            for (CompletableFuture<TourResult> run : runs) {
+                try {
+                    results.add(run.join());
+                } catch (CompletionException e) {
+                    // instances which could not be read have already been reported
+                    if (!(rootCause(e) instanceof IOException)) {
+                        throw e;
+                    }
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Throwable rootCause(Throwable failure) {
+        while (failure.getCause() != null
+                && (failure instanceof CompletionException || failure instanceof UncheckedIOException)) {
+            failure = failure.getCause();
+        }
+        return failure;
+    }
+
+    // method which returns the given files, with every directory replaced by the files inside it
+    private static List<File> instanceFiles(List<String> paths) {
+        List<File> files = new ArrayList<>();
+        for (String path : paths) {
+            File file = new File(path);
+            File[] directoryListing = file.listFiles();
+            if (directoryListing != null) {
+                Arrays.sort(directoryListing);
+                files.addAll(Arrays.asList(directoryListing));
+            } else {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+
+    // An instance together with the distances built for it, which are shared by every solver
+    private static final class Problem {
+        final TSPInstance instance;
+        final DistanceProvider distances;
+
+        private Problem(TSPInstance instance, DistanceProvider distances) {
+            this.instance = instance;
+            this.distances = distances;
+        }
+
+        static Problem read(File file) {
+            try {
+                TSPInstance instance = InputReader.readInstance(file.getPath());
+                return new Problem(instance, DistanceProviders.create(instance));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,274 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.DoubleSupplier;
+
+// Benchmark suite for the hot paths of both algorithms. Every benchmark is run on every instance given on the
+// command line: it is first repeated for a warm-up period (so that the JIT compiler has optimised it), and then for
+// a measurement period, after which its throughput (operations per second, and time per operation) and its
+// allocation (bytes per operation, and megabytes per second) are reported.
+//
+// Usage: java -cp MachineLearning1.jar Benchmarks [instance files or directories...]
+// (default: every instance in TSPinstances and TSPinstanceslibrary, smallest first)
+// Options:
+//   -Dbench.include=<text>           only run the benchmarks whose name contains the text
+//   -Dbench.warmupMs=<ms>            warm-up time per benchmark (default 1000)
+//   -Dbench.measureMs=<ms>           measurement time per benchmark (default 2000)
+//   -Dbench.maxEndToEndCities=<n>    largest instance on which the end-to-end runs are measured (default 2000)
+//   -Dbench.csv=<file>               also write the results to a CSV file, so that runs can be compared
+public class Benchmarks {
+
+    // the settings of the suite
+    private static final String include = System.getProperty("bench.include", "");
+    private static final long warmupNanos = Long.getLong("bench.warmupMs", 1000) * 1000000;
+    private static final long measureNanos = Long.getLong("bench.measureMs", 2000) * 1000000;
+    private static final int maxEndToEndCities = Integer.getInteger("bench.maxEndToEndCities", 2000);
+
+    // every result is added to this value, so that the JIT compiler cannot remove the work being measured
+    private static volatile double sink;
+
+    // the file the results are written to (null if they are only printed)
+    private static PrintWriter csv;
+
+    public static void main(String[] args) throws IOException {
+        List<File> instances = instanceFiles(args);
+
+        String csvPath = System.getProperty("bench.csv");
+        if (csvPath != null) {
+            csv = new PrintWriter(new FileWriter(csvPath));
+            csv.println("benchmark,instance,cities,ops_per_s,ns_per_op,bytes_per_op,alloc_mb_per_s");
+        }
+        if (!AllocationProbe.isSupported()) {
+            System.out.println("This JVM cannot measure per-thread allocation, allocation will be reported as -1");
+        }
+
+        System.out.println(String.format(Locale.ROOT, "%-32s %-14s %8s %14s %14s %14s %12s",
+                "benchmark", "instance", "cities", "ops/s", "ns/op", "B/op", "MB/s alloc"));
+        try {
+            for (File instance : instances) {
+                benchmarkInstance(instance);
+            }
+        } finally {
+            if (csv != null) {
+                csv.close();
+            }
+        }
+    }
+
+    // method which runs every benchmark on one instance
+    private static void benchmarkInstance(File instance) throws IOException {
+        String name = instance.getName().replace(".tsp", "");
+        TSPInstance tspInstance = InputReader.readInstance(instance.getPath());
+        ArrayList<City> cities = tspInstance.cities();
+        int n = cities.size();
+        Random random = new Random(42);
+
+        // reading the instance and calculating distances
+        measure("InputReader.readInstance", name, n, () -> {
+            try {
+                return InputReader.readInstance(instance.getPath()).dimension;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        measure("Location.distance", name, n, () -> {
+            City a = cities.get(random.nextInt(n));
+            City b = cities.get(random.nextInt(n));
+            return Location.distance(a.location, b.location);
+        });
+        measure("DistanceProviders.create", name, n, () -> DistanceProviders.create(tspInstance).distance(0, n - 1));
+
+        // the distance kernels: the scalar kernel, and the vector kernel if this JVM can run it
+        List<DistanceKernel> kernels = new ArrayList<>();
+        kernels.add(new ScalarDistanceKernel(tspInstance));
+        DistanceKernel vectorKernel = DistanceKernel.vector(tspInstance);
+        if (vectorKernel != null) {
+            kernels.add(vectorKernel);
+        }
+        double[] kernelRow = new double[Math.max(n, 32)];
+        int[] kernelTour = randomChromosome(n, random).path;
+        // the 2k candidates which CandidateLists evaluates for every city (k = 15 by default), here random cities
+        int[] kernelCities = new int[30];
+        for (int i = 0; i < kernelCities.length; i++) {
+            kernelCities[i] = random.nextInt(n);
+        }
+        for (DistanceKernel kernel : kernels) {
+            String kernelName = " (" + kernel.description() + ")";
+            measure("DistanceKernel.row" + kernelName, name, n, () -> {
+                kernel.row(random.nextInt(n), 0, n, kernelRow, 0);
+                return kernelRow[n - 1];
+            });
+            measure("DistanceKernel.gather" + kernelName, name, n, () -> {
+                kernel.gather(random.nextInt(n), kernelCities, kernelCities.length, kernelRow);
+                return kernelRow[0];
+            });
+            measure("DistanceKernel.tourLength" + kernelName, name, n, () -> kernel.tourLength(kernelTour, 0, n));
+        }
+
+        DistanceProvider distances = DistanceProviders.create(tspInstance);
+
+        // GA operators
+        GeneticAlgorithm ga = new GeneticAlgorithm();
+        ga.initialise(cities, distances);
+        Population population = new Population(100, n);
+        for (int i = 0; i < population.capacity; i++) {
+            int[] path = randomChromosome(n, random).path;
+            population.set(population.size++, path, 0, ga.routeDistance(path, 0, n), TourHash.of(path));
+        }
+        int[] order = new int[population.size];
+        population.sortByLength(order, new int[population.size]);
+        double[] sortedLengths = new double[population.size];
+        for (int i = 0; i < population.size; i++) {
+            sortedLengths[i] = population.lengths[order[i]];
+        }
+        // the children are written into an arena of their own, as they are by the GA
+        Population children = new Population(1, n);
+        children.size = 1;
+        measure("GA.routeDistance", name, n, () -> ga.routeDistance(population.tours,
+                population.offset(random.nextInt(population.size)), n));
+        measure("GA.crossover", name, n, () -> {
+            ga.crossover(population, random.nextInt(population.size), random.nextInt(population.size), children, 0);
+            return children.tours[n - 1];
+        });
+        RankSelection rankSelection = new RankSelection();
+        rankSelection.prepare(sortedLengths, population.size);
+        measure("GA.rankSelection", name, n, () -> rankSelection.select(random));
+        FitnessProportionalSelection fitnessSelection = new FitnessProportionalSelection();
+        // the fitness changes every generation, so the table is built again before selecting
+        measure("GA.fitnessSelection", name, n, () -> {
+            fitnessSelection.prepare(sortedLengths, population.size);
+            return fitnessSelection.select(random);
+        });
+        measure("GA.mutateRoute", name, n, () -> {
+            int chromosome = random.nextInt(population.size);
+            ga.mutateRoute(population, chromosome);
+            return population.tours[population.offset(chromosome)];
+        });
+
+        // ACO operators. The ant has visited half of the cities, so that nextCity sees a realistic mix of
+        // visited and unvisited candidates
+        AntColonyOptimisation aco = new AntColonyOptimisation();
+        aco.initialise(cities, distances);
+        Ant ant = new Ant(n);
+        int[] halfTour = randomChromosome(n, random).path;
+        ant.reset(halfTour[0]);
+        for (int i = 1; i < n / 2; i++) {
+            ant.visit(halfTour[i]);
+        }
+        measure("ACO.nextCity", name, n, () -> aco.nextCity(cities, ant));
+        measure("ACO.localPheromoneUpdate", name, n, () -> {
+            // two different random cities
+            int a = random.nextInt(n);
+            int b = (a + 1 + random.nextInt(n - 1)) % n;
+            aco.performLocalPheromoneUpdate(a, b);
+            return 0;
+        });
+        Ant tourAnt = new Ant(n);
+        tourAnt.reset(halfTour[0]);
+        for (int i = 1; i < n; i++) {
+            tourAnt.visit(halfTour[i]);
+        }
+        tourAnt.pathDistance = aco.routeDistance(tourAnt);
+        measure("ACO.globalPheromoneUpdate", name, n, () -> {
+            aco.performGlobalPheromoneUpdate(tourAnt);
+            return 0;
+        });
+
+        // full runs of both algorithms, with a small number of generations/iterations
+        if (n <= maxEndToEndCities) {
+            GeneticAlgorithm endToEndGA = new GeneticAlgorithm();
+            endToEndGA.setGenerations(10);
+            measure("GA end-to-end (10 generations)", name, n, () -> endToEndGA.solve(tspInstance, distances).length);
+            AntColonyOptimisation endToEndACO = new AntColonyOptimisation();
+            endToEndACO.setIterations(10);
+            measure("ACO end-to-end (10 iterations)", name, n, () -> endToEndACO.solve(tspInstance, distances).length);
+        }
+    }
+
+    // method which warms up and then measures one benchmark, and reports its results
+    private static void measure(String benchmark, String instance, int cities, DoubleSupplier operation) {
+        if (!benchmark.contains(include)) {
+            return;
+        }
+
+        // warm up, repeating the operation until the warm-up period is over
+        long end = System.nanoTime() + warmupNanos;
+        do {
+            sink += operation.getAsDouble();
+        } while (System.nanoTime() < end);
+
+        // measure, running the operation in batches which double in size (up to 1024 operations), so that the clock
+        // is rarely read for quick operations while slow operations do not overrun the measurement period by much
+        long operations = 0;
+        int batch = 1;
+        long allocatedBefore = AllocationProbe.allocatedBytes();
+        long start = System.nanoTime();
+        long now;
+        do {
+            for (int i = 0; i < batch; i++) {
+                sink += operation.getAsDouble();
+            }
+            operations += batch;
+            batch = Math.min(batch * 2, 1024);
+            now = System.nanoTime();
+        } while (now - start < measureNanos);
+        long elapsed = now - start;
+        long allocated = AllocationProbe.isSupported() ? AllocationProbe.allocatedBytes() - allocatedBefore : -1;
+
+        double opsPerSecond = operations * 1e9 / elapsed;
+        double nanosPerOperation = (double) elapsed / operations;
+        double bytesPerOperation = allocated < 0 ? -1 : (double) allocated / operations;
+        double megabytesPerSecond = allocated < 0 ? -1 : allocated / (1024.0 * 1024.0) / (elapsed / 1e9);
+
+        System.out.println(String.format(Locale.ROOT, "%-32s %-14s %8d %14.1f %14.1f %14.1f %12.1f",
+                benchmark, instance, cities, opsPerSecond, nanosPerOperation, bytesPerOperation, megabytesPerSecond));
+        if (csv != null) {
+            csv.println(String.format(Locale.ROOT, "%s,%s,%d,%.3f,%.3f,%.3f,%.3f",
+                    benchmark, instance, cities, opsPerSecond, nanosPerOperation, bytesPerOperation, megabytesPerSecond));
+            csv.flush();
+        }
+    }
+
+    // method which returns a random tour of n cities
+    private static Chromosome randomChromosome(int n, Random random) {
+        Chromosome chromosome = new Chromosome(n);
+        for (int i = 0; i < n; i++) {
+            chromosome.path[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = chromosome.path[i];
+            chromosome.path[i] = chromosome.path[j];
+            chromosome.path[j] = temp;
+        }
+        return chromosome;
+    }
+
+    // method which returns the instance files named on the command line (directories are expanded),
+    // or all the bundled instances, ordered from the smallest file to the largest
+    private static List<File> instanceFiles(String[] args) {
+        List<String> paths = args.length > 0
+                ? Arrays.asList(args) : Arrays.asList("TSPinstances", "TSPinstanceslibrary");
+
+        List<File> files = new ArrayList<>();
+        for (String path : paths) {
+            File file = new File(path);
+            File[] directoryListing = file.listFiles();
+            if (directoryListing != null) {
+                files.addAll(Arrays.asList(directoryListing));
+            } else {
+                files.add(file);
+            }
+        }
+        files.sort(Comparator.comparingLong(File::length));
+        return files;
+    }
+}
@@ -0,0 +1,64 @@
+// Solver which looks up the result of a run in the ResultCache before running the solver it wraps. When the same
+// instance was already solved with the same settings the stored result is returned at once, marked as stopped by
+// CACHED. Otherwise the wrapped solver starts from the tour of the most similar stored instance (if one shares enough
+// of the cities, see ResultCache.warmStartTour), and its result is stored, unless the run was interrupted.
+public class CachingSolver implements Solver {
+
+    private final Solver solver;
+    private final ResultCache cache;
+    // the settings of the wrapped solver which are not given by system properties, e.g. a time limit set by the
+    // caller, which are part of the key of its results
+    private final String parameters;
+
+    public CachingSolver(Solver solver, ResultCache cache, String parameters) {
+        this.solver = solver;
+        this.cache = cache;
+        this.parameters = parameters;
+    }
+
+    // method which returns the solver wrapped in the cache given on the command line, or the solver itself if no
+    // cache was given
+    public static Solver configured(Solver solver, String parameters) {
+        ResultCache cache = ResultCache.configured();
+        return cache == null ? solver : new CachingSolver(solver, cache, parameters);
+    }
+
+    @Override
+    public String name() {
+        return solver.name();
+    }
+
+    // method which returns the stored result of solving the instance with these settings, or null if there is none.
+    // This does not need the distances, so a caller can avoid building them for a result which is already known
+    public TourResult lookup(TSPInstance instance) {
+        long startTime = System.nanoTime();
+        TourResult stored = cache.get(cache.key(instance, solver.name(), parameters));
+        if (stored == null || stored.tour.length != instance.dimension) {
+            return null;
+        }
+        return new TourResult(stored.solver, instance.name, stored.tour, stored.length, stored.steps,
+                stored.evaluations, TerminationPolicy.Reason.CACHED, (System.nanoTime() - startTime) / 1000000);
+    }
+
+    @Override
+    public TourResult solve(TSPInstance instance, DistanceProvider distances) {
+        TourResult cached = lookup(instance);
+        if (cached != null) {
+            return cached;
+        }
+        int[] tour = cache.warmStartTour(instance, distances);
+        if (tour != null) {
+            solver.warmStart(tour);
+        }
+        TourResult result = solver.solve(instance, distances);
+        if (result.stopReason != TerminationPolicy.Reason.INTERRUPTED) {
+            cache.put(cache.key(instance, solver.name(), parameters), instance, result);
+        }
+        return result;
+    }
+
+    @Override
+    public void warmStart(int[] tour) {
+        solver.warmStart(tour);
+    }
+}
@@ -0,0 +1,76 @@
+import java.util.ArrayList;
+
+// Nearest neighbour candidate lists: for every city, the k closest other cities ordered from the closest to the furthest.
+// Good tours almost only use edges between cities which are close to one another, so the algorithms only consider
+// these candidates when choosing the next city, and only fall back to looking at every city when all of them are used.
+// The size of the lists can be set from the command line with -Dtsp.candidates=<k> (default: 15).
+public class CandidateLists {
+
+    // the default number of candidates kept for every city
+    public static final int DEFAULT_SIZE = 15;
+
+    // method which returns the number of candidates given on the command line (or the default)
+    public static int configuredSize() {
+        return Integer.getInteger("tsp.candidates", DEFAULT_SIZE);
+    }
+
+    // method which returns, for every city, its k nearest neighbours according to the given distances.
+    // when the cities have locations, a k-d tree over them is used to find the 2k cities which are closest in the
+    // plane, out of which the k closest according to the instance's distances are kept (the two orders only differ
+    // through rounding, or for GEO instances). Otherwise every pair of cities is compared
+    public static int[][] build(ArrayList<City> cities, DistanceProvider distances, int k) {
+        int n = cities.size();
+        k = Math.min(k, n - 1);
+        boolean hasLocations = n > 0 && cities.get(0).location != null;
+        KDTree tree = hasLocations ? new KDTree(cities) : null;
+
+        int[][] candidates = new int[n][];
+        for (int i = 0; i < n; i++) {
+            if (tree != null) {
+                candidates[i] = closest(i, tree.nearest(i, 2 * k), distances, k);
+            } else {
+                candidates[i] = closest(i, null, distances, k);
+            }
+        }
+        return candidates;
+    }
+
+    // method which returns the k cities out of the given pool (or out of every city, if the pool is null)
+    // which are closest to the given city, ordered from the closest to the furthest
+    private static int[] closest(int city, int[] pool, DistanceProvider distances, int k) {
+        int poolSize = pool == null ? distances.size() : pool.length;
+        int[] nearest = new int[k];
+        if (k == 0) {
+            return nearest;
+        }
+        double[] nearestDistances = new double[k];
+        int found = 0;
+        // the distances to a pool of cities are calculated together
+        double[] poolDistances = null;
+        if (pool != null) {
+            poolDistances = new double[poolSize];
+            distances.distances(city, pool, poolSize, poolDistances);
+        }
+
+        for (int p = 0; p < poolSize; p++) {
+            int other = pool == null ? p : pool[p];
+            if (other == city) {
+                continue;
+            }
+            double distance = pool == null ? distances.distance(city, other) : poolDistances[p];
+            if (found == k && distance >= nearestDistances[k - 1]) {
+                continue;
+            }
+            // insertion into the sorted list of the closest cities found so far (keeping earlier cities first on ties)
+            int i = found < k ? found++ : k - 1;
+            while (i > 0 && nearestDistances[i - 1] > distance) {
+                nearest[i] = nearest[i - 1];
+                nearestDistances[i] = nearestDistances[i - 1];
+                i--;
+            }
+            nearest[i] = other;
+            nearestDistances[i] = distance;
+        }
+        return nearest;
+    }
+}
@@ -0,0 +1,150 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+// Checkpoints of a single run of the GA or the ACO, so that a long run which is stopped or crashes can be resumed.
+// Every few steps the solver writes the state it needs to carry on (the GA its population, the ACO its pheromone
+// levels and best tour, both the progress of the run against its termination policy) to a compact binary file.
+// The file is written through a memory-mapped temporary file which then replaces the previous checkpoint, so the run
+// only stalls while the state is copied into memory, and a crash while writing leaves the previous checkpoint intact.
+// Checkpoints are off unless a directory is given on the command line:
+//   -Dtsp.checkpointDir=<directory>      (one file per instance and algorithm, e.g. berlin52-GA-<fingerprint>.checkpoint)
+//   -Dtsp.checkpointEvery=<steps>        (default: 100, the last step of a run is always written)
+//   -Dtsp.resume=true                    (start from the checkpoint in the directory, if there is one)
+// A file starts with a header holding a magic number, the version of the format, the number of cities and the
+// fingerprint of the instance (see TSPInstance.fingerprint), which is also part of the name of the file, so that
+// instances with the same name in different directories never resume from each other's checkpoints.
+public class Checkpoint {
+
+    // the checkpoint used when no directory was given, which writes and resumes nothing
+    private static final Checkpoint disabled = new Checkpoint(null, 0, Integer.MAX_VALUE, false);
+
+    // the header of every checkpoint: "TSPC", the version of the format, the number of cities and the fingerprint
+    private static final int MAGIC = 0x54535043;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 3 * Integer.BYTES + Long.BYTES;
+
+    // where the checkpoint is written (null when disabled), and the fingerprint of the instance of the run
+    private final Path file;
+    private final long fingerprint;
+    private final int every;
+    private final boolean resume;
+    // whether a checkpoint of the run was too large to be written, which is only reported once
+    private boolean tooLarge;
+
+    private Checkpoint(Path file, long fingerprint, int every, boolean resume) {
+        this.file = file;
+        this.fingerprint = fingerprint;
+        this.every = Math.max(1, every);
+        this.resume = resume;
+    }
+
+    // method which returns the checkpoint of a run of the given solver on the given instance, using the settings from
+    // the command line
+    public static Checkpoint open(String solver, TSPInstance instance) {
+        String directory = System.getProperty("tsp.checkpointDir");
+        if (directory == null) {
+            return disabled;
+        }
+        try {
+            Path dir = Paths.get(directory);
+            Files.createDirectories(dir);
+            long fingerprint = instance.fingerprint();
+            String name = instance.name + "-" + solver + "-" + String.format("%016x", fingerprint) + ".checkpoint";
+            return new Checkpoint(dir.resolve(name), fingerprint, Integer.getInteger("tsp.checkpointEvery", 100),
+                    Boolean.getBoolean("tsp.resume"));
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot write checkpoints to " + directory, e);
+        }
+    }
+
+    // method which returns whether a checkpoint should be written after the given step (counted from 0)
+    public boolean shouldSave(int step, boolean lastStep) {
+        return file != null && (lastStep || (step + 1) % every == 0);
+    }
+
+    // method which writes a checkpoint of a run on the given number of cities. contents writes exactly the given
+    // number of bytes of state into the buffer it is given. A checkpoint larger than a single mapped buffer (2 GB,
+    // e.g. a dense pheromone matrix of more than about 23,000 cities) is not written, so the run carries on without
+    // checkpoints rather than failing
+    public void save(int cities, long bytes, Consumer<ByteBuffer> contents) {
+        if (file == null) {
+            return;
+        }
+        long size = HEADER_BYTES + bytes;
+        if (size > Integer.MAX_VALUE) {
+            if (!tooLarge) {
+                tooLarge = true;
+                System.out.println("Not writing checkpoint " + file + ": " + size + " bytes is too large to be mapped");
+            }
+            return;
+        }
+        Path temporary = null;
+        try {
+            // a temporary file of its own, so that a run never writes into the temporary file of another
+            temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(cities).putLong(fingerprint);
+                contents.accept(buffer);
+                if (buffer.position() != size) {
+                    throw new IllegalStateException("the checkpoint holds " + buffer.position() + " bytes instead of " + size);
+                }
+                // the contents must be on the disk before the file replaces the previous checkpoint, or a crash could
+                // leave a complete checkpoint file with missing contents
+                buffer.force();
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(temporary);
+            throw new UncheckedIOException("cannot write checkpoint " + file, e);
+        } catch (RuntimeException e) {
+            deleteQuietly(temporary);
+            throw e;
+        }
+    }
+
+    // method which returns the state written by the last checkpoint of a run on the given number of cities (positioned
+    // just after the header), or null if the run should not be resumed or there is no checkpoint to resume from
+    public ByteBuffer resume(int cities) {
+        if (file == null || !resume || !Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("not a checkpoint of this version");
+            }
+            int savedCities = buffer.getInt();
+            if (savedCities != cities) {
+                throw new IOException("the checkpoint has " + savedCities + " cities instead of " + cities);
+            }
+            if (buffer.getLong() != fingerprint) {
+                throw new IOException("the checkpoint is of a different instance");
+            }
+            return buffer;
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot resume from checkpoint " + file, e);
+        }
+    }
+
+    private static void deleteQuietly(Path temporary) {
+        if (temporary == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(temporary);
+        } catch (IOException e) {
+            // the temporary file is only left behind
+        }
+    }
+}
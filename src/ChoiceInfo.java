@@ -0,0 +1,71 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// The 'choice info' of the candidate edges: for every city r and every city s in its candidate list, the score
+// tau(r,s) * eta(r,s)^beta with which an ant on r weighs moving to s, where eta = 1/distance. The heuristic part
+// eta^beta never changes, so it is calculated once when the candidate lists are built, and the score of an edge is
+// calculated again only when its pheromone level changes. Choosing the next city from the candidate list then only
+// reads one value per candidate, instead of looking up the pheromone level and the distance and calling Math.pow.
+// The values of every city are stored one after the other, in the same order as its candidate list.
+// Several ants update the pheromone levels at the same time, so a score may briefly be left one local update behind
+// its level when two ants update the same edge at the same moment; the next update of that edge corrects it.
+public class ChoiceInfo {
+
+    // handle used to read and write single scores while other ants are updating them
+    private static final VarHandle SCORE = MethodHandles.arrayElementVarHandle(double[].class);
+
+    // the candidate list of every city, and the number of candidates of every city
+    private final int[][] candidateLists;
+    private final int listSize;
+    // eta^beta and tau * eta^beta of every candidate edge
+    private final double[] heuristics;
+    private final double[] scores;
+
+    public ChoiceInfo(int[][] candidateLists, DistanceProvider distances, double beta, PheromoneStore pheromoneLevels) {
+        int n = candidateLists.length;
+        this.candidateLists = candidateLists;
+        this.listSize = n == 0 ? 0 : candidateLists[0].length;
+        this.heuristics = new double[n * listSize];
+        this.scores = new double[n * listSize];
+        for (int r = 0; r < n; r++) {
+            for (int slot = 0; slot < listSize; slot++) {
+                int s = candidateLists[r][slot];
+                heuristics[r * listSize + slot] = heuristic(distances.distance(r, s), beta);
+                scores[r * listSize + slot] = pheromoneLevels.get(r, s) * heuristics[r * listSize + slot];
+            }
+        }
+    }
+
+    // method which returns eta^beta for an edge of the given length
+    static double heuristic(double distance, double beta) {
+        return beta == 2 ? 1 / (distance * distance) : Math.pow(1 / distance, beta);
+    }
+
+    // method which returns the score of moving from city r to the city at the given position of r's candidate list
+    public double score(int r, int slot) {
+        return (double) SCORE.getOpaque(scores, r * listSize + slot);
+    }
+
+    // method which records that the pheromone level of the edge between city a and city b is now the given level,
+    // updating the score of the edge in the candidate lists of both cities (if it is in them)
+    public void update(int a, int b, double level) {
+        setScore(a, b, level);
+        setScore(b, a, level);
+    }
+
+    private void setScore(int r, int s, double level) {
+        int[] candidates = candidateLists[r];
+        for (int slot = 0; slot < listSize; slot++) {
+            if (candidates[slot] == s) {
+                int index = r * listSize + slot;
+                SCORE.setOpaque(scores, index, level * heuristics[index]);
+                return;
+            }
+        }
+    }
+
+    // method which returns the number of bytes taken up by the heuristics and scores
+    public long memoryFootprint() {
+        return 2L * scores.length * Double.BYTES;
+    }
+}
@@ -1,34 +1,26 @@
 import java.util.Arrays;
 
-public class Chromosome implements Comparable<Chromosome> {
+public class Chromosome {
 
     int[] path;
     double fitness;
+    // the length of the path (-1 until it is set)
+    double length;
 
     public Chromosome(int pathLength) {
         this.path = new int[pathLength];
         // fill the path with null values (-1)
         Arrays.fill(this.path, -1);
         this.fitness = -1;
+        this.length = -1;
     }
 
-    // method which defines the >, < and == for Chromosomes, based off of their fitness
-    @Override
-    public int compareTo(Chromosome c){
-        int comparison;
-
-        if (c.fitness > this.fitness){
-            comparison = 1;
-        } else if (c.fitness < this.fitness) {
-            comparison = -1;
-        } else {
-            comparison = 0;
-        }
-
-        return comparison;
+    // method which sets the length of the path, and the fitness which follows from it
+    public void setLength(double length) {
+        this.length = length;
+        this.fitness = (1 / length) * 10000;
     }
 
-
     // method which returns the path of a chromosome as a string
     public String getPath() {
         StringBuilder string = new StringBuilder();
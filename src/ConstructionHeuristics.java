@@ -0,0 +1,275 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// Construction heuristics which build a whole tour quickly, used to seed the GA's population and to calculate the
+// length L_nn from which the ACO derives tau_0. None of them compares every city with every other city:
+//   * nearest neighbour: from a starting city, always move to the closest unvisited city. The closest unvisited city is
+//     the first unvisited city of the current city's candidate list, and only when all of those have been visited is
+//     it looked up in a k-d tree from which the visited cities are removed
+//   * greedy edge: add the candidate edges from the shortest to the longest, skipping any edge which would give a city
+//     a third edge or close a cycle too early, and then join the resulting fragments by nearest neighbour
+//   * space-filling curve: visit the cities in the order in which a Hilbert curve passes through them
+// Each takes about O(n log n) time. When the cities have no coordinates (EXPLICIT instances, which are small) the k-d
+// tree is replaced by a scan of every city, and the space-filling curve by nearest neighbour.
+// A ConstructionHeuristics object keeps its k-d tree and arrays between tours, so it must only be used by one thread
+public class ConstructionHeuristics {
+
+    // the number of bits of each coordinate on the grid the Hilbert curve passes through
+    private static final int HILBERT_ORDER = 16;
+
+    private final ArrayList<City> cities;
+    private final DistanceProvider distances;
+    // the nearest neighbours of every city, ordered from the closest to the furthest
+    private final int[][] candidateLists;
+    // the cities which have not been removed yet (null when the cities have no coordinates)
+    private final KDTree tree;
+    // whether every city has been removed, when there is no tree
+    private final boolean[] removed;
+
+    public ConstructionHeuristics(ArrayList<City> cities, DistanceProvider distances, int[][] candidateLists) {
+        this.cities = cities;
+        this.distances = distances;
+        this.candidateLists = candidateLists;
+        boolean hasLocations = !cities.isEmpty() && cities.get(0).location != null;
+        this.tree = hasLocations ? new KDTree(cities) : null;
+        this.removed = new boolean[cities.size()];
+    }
+
+    // method which returns the nearest neighbour tour from the given starting city
+    public int[] nearestNeighbour(int startingCity) {
+        int n = cities.size();
+        int[] path = new int[n];
+        restoreAll();
+        path[0] = startingCity;
+        remove(startingCity);
+        int currentCity = startingCity;
+        for (int i = 1; i < n; i++) {
+            int closestCity = -1;
+            // the candidates are ordered from the closest, so the first unvisited one is the closest unvisited city
+            for (int city : candidateLists[currentCity]) {
+                if (!isRemoved(city)) {
+                    closestCity = city;
+                    break;
+                }
+            }
+            if (closestCity == -1) {
+                closestCity = nearestRemaining(currentCity);
+            }
+            path[i] = closestCity;
+            remove(closestCity);
+            currentCity = closestCity;
+        }
+        return path;
+    }
+
+    // method which returns the greedy edge tour built from the candidate edges
+    public int[] greedyEdge() {
+        int n = cities.size();
+        if (n < 3) {
+            return nearestNeighbour(0);
+        }
+
+        // sort the candidate edges from the shortest to the longest. Each edge is packed into a long holding the bits
+        // of its length as a float (which are ordered like the lengths, since the lengths are never negative)
+        // above the number of the edge in the candidate lists
+        int listSize = candidateLists[0].length;
+        long[] edges = new long[n * listSize];
+        int numberOfEdges = 0;
+        for (int a = 0; a < n; a++) {
+            for (int slot = 0; slot < listSize; slot++) {
+                int b = candidateLists[a][slot];
+                // every edge appears in the lists of both its cities at most, so it is only kept from the smaller one
+                // (or from the only list it is in)
+                if (a < b || !contains(candidateLists[b], a)) {
+                    long length = Float.floatToIntBits((float) distances.distance(a, b));
+                    edges[numberOfEdges++] = (length << 32) | (a * listSize + slot);
+                }
+            }
+        }
+        Arrays.sort(edges, 0, numberOfEdges);
+
+        // the (up to 2) neighbours of every city in the fragments, and the fragment every city is in (union-find)
+        int[] neighbour1 = new int[n];
+        int[] neighbour2 = new int[n];
+        Arrays.fill(neighbour1, -1);
+        Arrays.fill(neighbour2, -1);
+        int[] fragment = new int[n];
+        for (int i = 0; i < n; i++) {
+            fragment[i] = i;
+        }
+        for (int e = 0; e < numberOfEdges; e++) {
+            int edge = (int) edges[e];
+            int a = edge / listSize;
+            int b = candidateLists[a][edge % listSize];
+            if (neighbour2[a] != -1 || neighbour2[b] != -1) {
+                continue;
+            }
+            int rootA = find(fragment, a);
+            int rootB = find(fragment, b);
+            if (rootA == rootB) {
+                continue;
+            }
+            fragment[rootA] = rootB;
+            link(neighbour1, neighbour2, a, b);
+            link(neighbour1, neighbour2, b, a);
+        }
+
+        // join the fragments: walk along a fragment from one of its ends to the other, and then go on to the closest
+        // end of another fragment. Only the ends of the fragments (the cities with fewer than 2 neighbours) are left
+        // to be found by the nearest remaining city queries
+        restoreAll();
+        int start = 0;
+        for (int city = 0; city < n; city++) {
+            if (neighbour2[city] != -1) {
+                remove(city);
+            } else {
+                start = city;
+            }
+        }
+        int[] path = new int[n];
+        int pathSize = 0;
+        int end = start;
+        while (end != -1) {
+            // walk the fragment which starts at end
+            int previous = -1;
+            int city = end;
+            remove(city);
+            while (city != -1) {
+                path[pathSize++] = city;
+                int next = neighbour1[city] != previous ? neighbour1[city] : neighbour2[city];
+                previous = city;
+                city = next;
+            }
+            remove(previous);
+            end = nearestRemaining(previous);
+        }
+        return path;
+    }
+
+    // method which returns the tour which visits the cities in the order of a Hilbert curve over their coordinates
+    // (or the nearest neighbour tour from the first city, if the cities have no coordinates)
+    public int[] spaceFillingCurve() {
+        int n = cities.size();
+        if (tree == null) {
+            return nearestNeighbour(0);
+        }
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (City city : cities) {
+            minX = Math.min(minX, city.location.x);
+            minY = Math.min(minY, city.location.y);
+            maxX = Math.max(maxX, city.location.x);
+            maxY = Math.max(maxY, city.location.y);
+        }
+        // the same scale on both axes, so that the curve is not stretched
+        double cells = (1 << HILBERT_ORDER) - 1;
+        double scale = cells / Math.max(Math.max(maxX - minX, maxY - minY), Double.MIN_NORMAL);
+
+        // sort the cities by their position on the curve, packed into a long above the number of the city
+        long[] order = new long[n];
+        for (int i = 0; i < n; i++) {
+            Location location = cities.get(i).location;
+            long d = hilbertIndex((int) ((location.x - minX) * scale), (int) ((location.y - minY) * scale));
+            order[i] = (d << 31) | i;
+        }
+        Arrays.sort(order);
+        int[] path = new int[n];
+        for (int i = 0; i < n; i++) {
+            path[i] = (int) (order[i] & Integer.MAX_VALUE);
+        }
+        return path;
+    }
+
+    // method which returns the length of the tour which visits the cities in the order of the path
+    public double length(int[] path) {
+        double length = 0;
+        for (int i = 0; i < path.length; i++) {
+            length += distances.distance(path[i], path[i + 1 == path.length ? 0 : i + 1]);
+        }
+        return length;
+    }
+
+    // method which returns the distance along the Hilbert curve of the given order to the cell (x, y)
+    private static long hilbertIndex(int x, int y) {
+        int side = 1 << HILBERT_ORDER;
+        long d = 0;
+        for (int s = side / 2; s > 0; s /= 2) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant, so that the curve inside it has the right orientation
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = side - 1 - x;
+                    y = side - 1 - y;
+                }
+                int temp = x;
+                x = y;
+                y = temp;
+            }
+        }
+        return d;
+    }
+
+    private static boolean contains(int[] candidates, int city) {
+        for (int candidate : candidates) {
+            if (candidate == city) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // method which returns the fragment a city is in, shortening the paths to the root of its fragment on the way
+    private static int find(int[] fragment, int city) {
+        while (fragment[city] != city) {
+            fragment[city] = fragment[fragment[city]];
+            city = fragment[city];
+        }
+        return city;
+    }
+
+    private static void link(int[] neighbour1, int[] neighbour2, int city, int neighbour) {
+        if (neighbour1[city] == -1) {
+            neighbour1[city] = neighbour;
+        } else {
+            neighbour2[city] = neighbour;
+        }
+    }
+
+    // methods which keep track of the cities which have not been used yet, in the k-d tree if there is one
+    private void restoreAll() {
+        if (tree != null) {
+            tree.restoreAll();
+        }
+        Arrays.fill(removed, false);
+    }
+
+    private void remove(int city) {
+        if (tree != null) {
+            tree.remove(city);
+        }
+        removed[city] = true;
+    }
+
+    private boolean isRemoved(int city) {
+        return removed[city];
+    }
+
+    // method which returns the closest city to the given city which has not been removed, or -1 if there is none
+    private int nearestRemaining(int city) {
+        if (tree != null) {
+            return tree.nearestRemaining(city);
+        }
+        int closestCity = -1;
+        for (int other = 0; other < removed.length; other++) {
+            if (!removed[other] && other != city && (closestCity == -1
+                    || distances.distance(city, other) < distances.distance(city, closestCity))) {
+                closestCity = other;
+            }
+        }
+        return closestCity;
+    }
+}
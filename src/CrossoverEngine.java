@@ -0,0 +1,95 @@
+// Engine which performs the Sequential Constructive Crossover (SCX) of the GA in O(n) time.
+// The child starts with the first city of parent 1, and is extended with whichever is closer of the next city in
+// parent 1 and the next city in parent 2 which is not yet in the child (wrapping around to the start of a parent).
+//
+// Instead of searching for the current city in each parent and then scanning forward past the cities already in
+// the child, each parent is turned into a circular doubly linked list of the cities not yet in the child:
+// next[city] is the successor of a city in the parent and prev[city] its predecessor. A city is marked as being in
+// the child by unlinking it from both lists, so the next legitimate city after the current city is always
+// next[current], since the current city was unlinked just before it is looked up.
+// The arrays are kept and reused from one crossover to the next, so an engine should only be used by one thread.
+public class CrossoverEngine {
+
+    // the successor and predecessor of every city in parent 1, among the cities not yet in the child
+    private int[] next1 = new int[0];
+    private int[] prev1 = new int[0];
+    // the successor and predecessor of every city in parent 2, among the cities not yet in the child
+    private int[] next2 = new int[0];
+    private int[] prev2 = new int[0];
+
+    // method which sets the chromosome at position child of the children to the child of the chromosomes at positions
+    // first and second of the parents (which is equal to the child produced by scanning the parents), with its length
+    // and fingerprint. The child is written straight into the arena of the children, so nothing is allocated
+    public void crossover(Population parents, int first, int second, Population children, int child,
+                          DistanceProvider distances) {
+        // store the length of the paths
+        int pathLength = parents.pathLength;
+        if (next1.length != pathLength) {
+            next1 = new int[pathLength];
+            prev1 = new int[pathLength];
+            next2 = new int[pathLength];
+            prev2 = new int[pathLength];
+        }
+        link(parents.tours, parents.offset(first), pathLength, next1, prev1);
+        link(parents.tours, parents.offset(second), pathLength, next2, prev2);
+
+        // the path of the child
+        int[] childPath = children.tours;
+        int offset = children.offset(child);
+
+        // set the first node in parent 1's path as the first node in the child path, and mark it as visited
+        childPath[offset] = parents.tours[parents.offset(first)];
+        unlink(childPath[offset]);
+        // the length and fingerprint of the child, which are added up as the child is built
+        // so that it never needs to be evaluated
+        double length = 0.0;
+        long hash = 0;
+
+        for (int i = 0; i < pathLength-1; i++) {
+            int currentNode = childPath[offset + i];
+
+            // the next legitimate node in each parent
+            int p1NextNode = next1[currentNode];
+            int p2NextNode = next2[currentNode];
+
+            // if the distance between the current city and the next legitimate city in parent1
+            // is shorter than the distance from current city to the next legitimate node in p2
+            int nextNode;
+            double p1Distance = distances.distance(currentNode, p1NextNode);
+            double p2Distance = distances.distance(currentNode, p2NextNode);
+            if (p1Distance < p2Distance) {
+                nextNode = p1NextNode;
+                length += p1Distance;
+            } else {
+                nextNode = p2NextNode;
+                length += p2Distance;
+            }
+            childPath[offset + i + 1] = nextNode;
+            hash ^= TourHash.edge(currentNode, nextNode);
+            unlink(nextNode);
+        }
+        // plus the edge from the last city of the child back to its first city
+        int last = childPath[offset + pathLength - 1];
+        children.lengths[child] = length + distances.distance(last, childPath[offset]);
+        children.hashes[child] = hash ^ TourHash.edge(last, childPath[offset]);
+    }
+
+    // method which links the cities of a path into a circular doubly linked list, in the order of the path
+    private static void link(int[] tours, int offset, int pathLength, int[] next, int[] prev) {
+        for (int j = 0; j < pathLength; j++) {
+            int city = tours[offset + j];
+            int successor = tours[offset + (j + 1 == pathLength ? 0 : j + 1)];
+            next[city] = successor;
+            prev[successor] = city;
+        }
+    }
+
+    // method which marks a city as being in the child, by removing it from the lists of both parents.
+    // the city's own next pointers are left as they are, since they are needed for the next lookup
+    private void unlink(int city) {
+        next1[prev1[city]] = next1[city];
+        prev1[next1[city]] = prev1[city];
+        next2[prev2[city]] = next2[city];
+        prev2[next2[city]] = prev2[city];
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.Locale;
+
+// Kernels which calculate many distances of an instance at once, straight from the primitive x and y arrays of the
+// coordinates of its cities (see TSPInstance), using the convention of the instance's edge weight type:
+//   * row: the distances from one city to a range of cities, used to build the distance matrices and the lazy rows
+//   * gather: the distances from one city to a list of cities, used to evaluate the candidate edges of a city
+//   * tourLength: the length of a tour, gathering the coordinates of its cities in the order of the path
+// ScalarDistanceKernel calculates one distance at a time. VectorDistanceKernel calculates as many at a time as the
+// CPU's vector registers hold, using the jdk.incubator.vector module. Since the rest of the program targets Java 9,
+// it is kept in src-vector and compiled separately (see the README), and it is only used when its class can be
+// loaded and the JVM was started with --add-modules jdk.incubator.vector. Both kernels return exactly the distances
+// of TSPInstance.distance, although the vector kernel adds up the length of a tour in a different order.
+// The kernel can be chosen from the command line with -Dtsp.distanceKernel=auto|scalar|vector
+// (default: auto, which uses the vector kernel whenever it is available). GEO distances (which need trigonometric
+// functions) and EXPLICIT distances (which are looked up) are always calculated by the scalar kernel
+public interface DistanceKernel {
+
+    // method which writes the distances from city a to the cities from..to-1 into out, starting at outOffset
+    void row(int a, int from, int to, double[] out, int outOffset);
+
+    // method which writes the distances from city a to the first count cities of the given array into out
+    void gather(int a, int[] cities, int count, double[] out);
+
+    // method which returns the length of the tour through the path of the given length which starts at the given
+    // offset of an array
+    double tourLength(int[] tours, int offset, int pathLength);
+
+    // method which returns a short, human readable description of the kernel, used in the run output
+    String description();
+
+    // method which returns the kernel given on the command line for the instance
+    static DistanceKernel create(TSPInstance instance) {
+        String kernel = System.getProperty("tsp.distanceKernel", "auto").trim().toLowerCase(Locale.ROOT);
+        switch (kernel) {
+            case "scalar":
+                return new ScalarDistanceKernel(instance);
+            case "vector": {
+                if (!vectorisable(instance)) {
+                    return new ScalarDistanceKernel(instance);
+                }
+                DistanceKernel vector = vector(instance);
+                if (vector == null) {
+                    throw new IllegalStateException("The vector distance kernel needs the classes of src-vector "
+                            + "and a JVM started with --add-modules jdk.incubator.vector");
+                }
+                return vector;
+            }
+            case "auto": {
+                DistanceKernel vector = vector(instance);
+                return vector != null ? vector : new ScalarDistanceKernel(instance);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown distance kernel: " + kernel);
+        }
+    }
+
+    // method which returns the vector kernel for the instance, or null if it is not available or the distances of
+    // the instance cannot be vectorised
+    static DistanceKernel vector(TSPInstance instance) {
+        if (!vectorisable(instance)) {
+            return null;
+        }
+        try {
+            return (DistanceKernel) Class.forName("VectorDistanceKernel")
+                    .getConstructor(TSPInstance.class).newInstance(instance);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // the class was not compiled, or the jdk.incubator.vector module is not available
+            return null;
+        }
+    }
+
+    // method which returns whether the distances of the instance are calculated from its coordinates by the
+    // (rounded) Euclidean formulas, which is what the vector kernel calculates
+    private static boolean vectorisable(TSPInstance instance) {
+        return instance.hasCoordinates() && instance.edgeWeightType != TSPInstance.EdgeWeightType.GEO
+                && instance.edgeWeightType != TSPInstance.EdgeWeightType.EXPLICIT;
+    }
+}
@@ -0,0 +1,36 @@
+// Interface for every structure which can return the distance between any pair of cities.
+// Both the GA and the ACO look distances up through this interface, so one store can be built per instance and
+// shared by both algorithms. The way the distances are stored (and therefore how much memory they need)
+// depends on which implementation is chosen by DistanceProviders.
+public interface DistanceProvider {
+
+    // method which returns the number of cities the distances are stored for
+    int size();
+
+    // method which returns the distance between city a and city b (both given as 0-based indices)
+    double distance(int a, int b);
+
+    // method which writes the distances from city a to the first count cities of the given array into out
+    default void distances(int a, int[] cities, int count, double[] out) {
+        for (int i = 0; i < count; i++) {
+            out[i] = distance(a, cities[i]);
+        }
+    }
+
+    // method which returns the length of the tour through the path of the given length which starts at the given
+    // offset of an array
+    default double tourLength(int[] tours, int offset, int pathLength) {
+        double length = 0.0;
+        int last = offset + pathLength - 1;
+        for (int i = offset; i < last; i++) {
+            length += distance(tours[i], tours[i + 1]);
+        }
+        return length + distance(tours[last], tours[offset]);
+    }
+
+    // method which returns the approximate number of bytes taken up by the stored distances
+    long memoryFootprint();
+
+    // method which returns a short, human readable description of the backend, used in the run output
+    String description();
+}
@@ -0,0 +1,82 @@
+import java.util.Locale;
+
+// Factory which builds the DistanceProvider shared by both algorithms for one TSP instance.
+// The backend is chosen according to a memory budget: the most precise store which fits inside the budget is used.
+// The budget and the backend can be set from the command line:
+//   -Dtsp.distanceMemoryMB=<megabytes>          (default: a quarter of the maximum heap size)
+//   -Dtsp.distanceBackend=auto|double|float|int|lazy  (default: auto)
+public class DistanceProviders {
+
+    // the backends which can be chosen
+    public enum Backend { AUTO, DOUBLE, FLOAT, INT, LAZY }
+
+    // method which builds a distance store for the given instance using the settings from the command line
+    public static DistanceProvider create(TSPInstance instance) {
+        return create(instance, configuredBackend(instance), defaultMemoryBudget());
+    }
+
+    // method which returns the backend which create(instance) uses for the given instance with the settings from the
+    // command line, without building the distances
+    public static Backend configuredBackend(TSPInstance instance) {
+        String setting = System.getProperty("tsp.distanceBackend", "auto");
+        Backend backend = Backend.valueOf(setting.trim().toUpperCase(Locale.ROOT));
+        if (backend == Backend.AUTO) {
+            backend = chooseBackend(instance.dimension, instance.hasIntegralDistances(), defaultMemoryBudget());
+        }
+        return backend;
+    }
+
+    // method which builds a distance store for the given instance, using the given backend
+    // (or, if the backend is AUTO, the most precise backend which fits inside memoryBudget bytes)
+    public static DistanceProvider create(TSPInstance instance, Backend backend, long memoryBudget) {
+        int n = instance.dimension;
+
+        if (backend == Backend.AUTO) {
+            backend = chooseBackend(n, instance.hasIntegralDistances(), memoryBudget);
+        }
+
+        switch (backend) {
+            case DOUBLE:
+                return new PackedDistanceMatrix(instance);
+            case FLOAT:
+                return new FloatDistanceMatrix(instance);
+            case INT:
+                return new IntDistanceMatrix(instance);
+            default:
+                // keep as many rows as fit inside the budget
+                return new LazyDistanceRows(instance, (int) Math.min(n, memoryBudget / LazyDistanceRows.bytesPerRow(n)));
+        }
+    }
+
+    // method which returns the most precise backend whose memory requirement fits inside the budget.
+    // when every distance is a whole number, int storage is exact and is preferred over float storage
+    public static Backend chooseBackend(int n, boolean integralDistances, long memoryBudget) {
+        if (PackedTriangularMatrix.fitsInArray(n)) {
+            if (PackedDistanceMatrix.bytesRequired(n) <= memoryBudget) {
+                return Backend.DOUBLE;
+            }
+            if (integralDistances && IntDistanceMatrix.bytesRequired(n) <= memoryBudget) {
+                return Backend.INT;
+            }
+            if (FloatDistanceMatrix.bytesRequired(n) <= memoryBudget) {
+                return Backend.FLOAT;
+            }
+        }
+        return Backend.LAZY;
+    }
+
+    // method which returns the memory budget given on the command line, or a quarter of the maximum heap size
+    public static long defaultMemoryBudget() {
+        String megabytes = System.getProperty("tsp.distanceMemoryMB");
+        if (megabytes != null) {
+            return Long.parseLong(megabytes.trim()) * 1024 * 1024;
+        }
+        return Runtime.getRuntime().maxMemory() / 4;
+    }
+
+    // method which returns a line describing the chosen backend and its memory use, used in the run output
+    public static String report(DistanceProvider distances) {
+        return String.format(Locale.ROOT, "%s, %.1f MB", distances.description(),
+                distances.memoryFootprint() / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,27 @@
+import java.util.Random;
+
+// Fitness Proportional (Roulette Wheel) Selection: every chromosome is selected with a probability proportional to
+// its fitness. The alias table is built once per generation from the fitness of the population, after which every
+// parent is selected in O(1)
+public class FitnessProportionalSelection implements Selection {
+
+    private final AliasTable table = new AliasTable();
+    private double[] fitness = new double[0];
+
+    @Override
+    public void prepare(double[] lengths, int populationSize) {
+        if (fitness.length < populationSize) {
+            fitness = new double[populationSize];
+        }
+        for (int i = 0; i < populationSize; i++) {
+            // the fitness of a chromosome follows from its length as in Chromosome.setLength
+            fitness[i] = (1 / lengths[i]) * 10000;
+        }
+        table.build(fitness, populationSize);
+    }
+
+    @Override
+    public int select(Random random) {
+        return table.sample(random);
+    }
+}
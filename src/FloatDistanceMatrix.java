@@ -0,0 +1,42 @@
+// Distance store which keeps the distances of the upper triangle as single precision floats.
+// This uses half the memory of PackedDistanceMatrix, at the cost of about 7 significant digits of precision,
+// which is still far more than the precision of the coordinates in the TSPLIB instances.
+public class FloatDistanceMatrix extends PackedTriangularMatrix {
+
+    // the distances of the upper triangle, row by row
+    private final float[] distances;
+
+    public FloatDistanceMatrix(TSPInstance instance) {
+        super(instance.dimension);
+        distances = new float[(int) entries(n)];
+        fill(instance);
+    }
+
+    // method which returns how many bytes this store would need for n cities
+    public static long bytesRequired(int n) {
+        return entries(n) * Float.BYTES;
+    }
+
+    @Override
+    protected void store(int index, double distance) {
+        distances[index] = (float) distance;
+    }
+
+    @Override
+    public double distance(int a, int b) {
+        if (a == b) {
+            return 0.0;
+        }
+        return distances[index(a, b)];
+    }
+
+    @Override
+    public long memoryFootprint() {
+        return bytesRequired(n);
+    }
+
+    @Override
+    public String description() {
+        return "packed float upper-triangular";
+    }
+}
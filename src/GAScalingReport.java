@@ -0,0 +1,51 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+// Program which runs the GA on one instance with 1, 2, 4, ... up to N worker threads, and reports how the run time
+// scales with the number of threads.
+// Usage: java -cp MachineLearning1.jar GAScalingReport [instance] [generations] [maxThreads]
+// (defaults: TSPinstances/pcb442.tsp, 500 generations, the number of cores)
+public class GAScalingReport {
+
+    public static void main(String[] args) throws IOException {
+        String instance = args.length > 0 ? args[0] : "TSPinstances" + File.separator + "pcb442.tsp";
+        int generations = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        TSPInstance tspInstance = InputReader.readInstance(instance);
+        DistanceProvider distances = DistanceProviders.create(tspInstance);
+        System.out.println("GA scaling report: " + instance + ", " + generations + " generations");
+
+        // warm up the JIT compiler with a short run, so that the first measured run is not penalised
+        GeneticAlgorithm ga = new GeneticAlgorithm();
+        ga.setGenerations(Math.max(1, generations / 10));
+        ga.setParallelism(maxThreads);
+        ga.solve(tspInstance, distances);
+
+        ga.setGenerations(generations);
+        System.out.println("threads\ttime(ms)\tspeedup\tefficiency\tdistance");
+        long singleThreadTime = -1;
+        for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+            ga.setParallelism(threads);
+
+            TourResult fittestChromosome = ga.solve(tspInstance, distances);
+            long time = fittestChromosome.timeMillis;
+
+            if (singleThreadTime == -1) {
+                singleThreadTime = time;
+            }
+            double speedup = (double) singleThreadTime / Math.max(1, time);
+            System.out.println(String.format(Locale.ROOT, "%d\t%d\t%.2f\t%.2f\t%.2f", threads, time, speedup,
+                    speedup / threads, fittestChromosome.length));
+        }
+    }
+
+    // method which doubles the number of threads, making sure that maxThreads itself is also measured
+    private static int nextThreadCount(int threads, int maxThreads) {
+        if (threads == maxThreads) {
+            return maxThreads + 1;
+        }
+        return Math.min(threads * 2, maxThreads);
+    }
+}
@@ -1,424 +1,565 @@
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ThreadLocalRandom;  // for mutation
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.IntStream;
 
-public class GeneticAlgorithm {
+// The genetic algorithm. A GeneticAlgorithm object holds the settings of the algorithm and the state of the run
+// it is performing, so separate objects can run at the same time (see Solver), but one object runs one instance at a time.
+public class GeneticAlgorithm implements Solver {
+
+    // the distances between every pair of cities. Used as an optimisation,
+    // in order not to calculate a distance every time it is needed. Shared with the ACO (see DistanceProviders)
+    private DistanceProvider distances;
+
+    // the number of threads over which the fitness evaluation, crossover and mutation of each generation are split.
+    // can be set from the command line with -Dtsp.gaThreads=<threads> (default: the number of cores)
+    private int parallelism = Integer.getInteger("tsp.gaThreads", Runtime.getRuntime().availableProcessors());
+    // when a run stops: after 5000 generations by default (-Dtsp.gaGenerations=<generations>), or earlier if
+    // one of the limits of TerminationPolicy is given on the command line
+    private TerminationPolicy termination = TerminationPolicy.configured("tsp.gaGenerations", 5000);
+    // the number of tours evaluated during the current run: every tour whose length is calculated (the initial
+    // population, the children of crossover and the immigrants) or updated (by mutation or local search)
+    private long evaluations;
+    // the number of chromosomes considered for the last next generation, and how many of them were left out
+    // because the same tour was already in it
+    private int candidatesConsidered;
+    private int duplicatesRemoved;
+    // how the parents for crossover are chosen: Rank-Based Roulette Wheel Selection by default (see Selection)
+    private Selection selection = Selection.configured();
+    // whether the children replace the least fit chromosomes one at a time as soon as they are made (steady-state)
+    // rather than a whole generation at a time. can be set from the command line with -Dtsp.gaSteadyState=true
+    private boolean steadyState = Boolean.getBoolean("tsp.gaSteadyState");
+    // the number of chromosomes in the tournaments which choose the parents in steady-state mode, which never sorts
+    // the population (-Dtsp.gaTournamentSize=<chromosomes>, default: 2)
+    private int tournamentSize = Math.max(1, Integer.getInteger("tsp.gaTournamentSize", 2));
+    // guards the population in steady-state mode: the workers read their parents under the read lock, and replace
+    // the least fit chromosomes under the write lock
+    private final ReadWriteLock populationLock = new ReentrantReadWriteLock();
+    // one arena per thread for the (up to 2) children it makes at a time in steady-state mode
+    private ThreadLocal<Population> offspring;
+    // the pool of worker threads used during the current run (null when running on a single thread)
+    private ForkJoinPool pool;
+    // one crossover engine per thread, each of which keeps its own arrays between crossovers
+    private static final ThreadLocal<CrossoverEngine> crossoverEngines = ThreadLocal.withInitial(CrossoverEngine::new);
+    // the probability that a child is improved by local search (2-opt and Or-opt) before joining the population.
+    // can be set from the command line with -Dtsp.gaLocalSearchRate=<rate> (default: 0.1)
+    private double localSearchRate = Double.parseDouble(System.getProperty("tsp.gaLocalSearchRate", "0.1"));
+    // the number of random chromosomes added to the candidates for every next generation, as a fraction of the
+    // population. can be set from the command line with -Dtsp.gaImmigrationRate=<rate> (default: 0.05)
+    private double immigrationRate = Double.parseDouble(System.getProperty("tsp.gaImmigrationRate", "0.05"));
+    // one local search per thread for the current run, each of which keeps its own arrays between tours
+    private ThreadLocal<LocalSearch> localSearches;
+    // the construction heuristics of the current run, used to seed the initial population
+    private ConstructionHeuristics heuristics;
+    // the island this GA evolves when it is part of an IslandModel (null when it runs on its own)
+    private IslandModel.Island island;
+    // the tour the initial population of the next run is seeded with (null to start from scratch, see warmStart)
+    private int[] warmStartTour;
+    // the name of the telemetry and checkpoint files of the next runs (null for the name of the solver)
+    private String runName;
+
+    // the phases of a generation whose times are recorded by the telemetry (see Telemetry)
+    private static final int PHASE_FITNESS = 0;
+    private static final int PHASE_CROSSOVER = 1;
+    private static final int PHASE_MUTATION = 2;
+    private static final int PHASE_LOCAL_SEARCH = 3;
+    private static final int PHASE_REPLACEMENT = 4;
+
+    // method which sets the number of worker threads used by the next runs of the GA
+    public void setParallelism(int threads) {
+        parallelism = Math.max(1, threads);
+    }
 
-    // 2D-Array of distances between every pair of cities. Used as an optimisation,
-    // in order not to calculate a distance every time it is needed.
-    private static double distanceMatrix[][];
+    // method which sets the number of generations the next runs of the GA will evolve the population for
+    public void setGenerations(int numberOfGenerations) {
+        termination = termination.withMaxSteps(numberOfGenerations);
+    }
 
-    public static void GA(ArrayList<City> cities){
+    // method which sets when the next runs of the GA stop
+    public void setTermination(TerminationPolicy policy) {
+        termination = policy;
+    }
+
+    // method which sets the fraction of the population which is added as random chromosomes to the candidates for
+    // every next generation of the next runs of the GA
+    public void setImmigrationRate(double rate) {
+        immigrationRate = Math.max(0, rate);
+    }
+
+    // method which sets whether the next runs of the GA are steady-state (see steadyStateGeneration)
+    public void setSteadyState(boolean enabled) {
+        steadyState = enabled;
+    }
+
+    // method which sets how the next runs of the GA choose the parents for crossover
+    public void setSelection(Selection scheme) {
+        selection = scheme;
+    }
+
+    // method which seeds the initial population of the next runs of the GA with the given tour, next to the tours of
+    // the construction heuristics. It is ignored when the run resumes from a checkpoint
+    @Override
+    public void warmStart(int[] tour) {
+        warmStartTour = tour == null ? null : tour.clone();
+    }
+
+    // method which names the telemetry and checkpoint files of the next runs of the GA, so that runs on the same
+    // instance at the same time (e.g. the jobs of a SolveServer) do not share them
+    public void setRunName(String name) {
+        runName = name;
+    }
+
+    // method which makes the next runs of the GA evolve one island of an IslandModel, exchanging migrants with the others
+    void setIsland(IslandModel.Island island) {
+        this.island = island;
+    }
+
+    @Override
+    public String name() {
+        return "GA";
+    }
+
+    // the main method of the GA. Given an instance, this method returns the fittest chromosome found as a TourResult.
+    // the run stops according to the termination policy, or as soon as the calling thread is interrupted,
+    // and in both cases the fittest chromosome found so far is returned
+    @Override
+    public TourResult solve(TSPInstance instance, DistanceProvider distanceProvider){
+        long startTime = System.nanoTime();
+        // the cities that need to be visited
+        ArrayList<City> cities = instance.cities();
         // the number of cities that need to be visited
         int pathLength = cities.size();
-        // the number of chromosomes which will be generated
-        int populationSize = 100;
+        // the number of chromosomes which will be generated. Since the population never holds the same tour twice,
+        // it cannot be larger than the number of different tours there are (which only matters for tiny instances)
+        int populationSize = (int) Math.min(100, distinctTours(pathLength));
         // the number of chromosomes that will be generated from crossover as a percentage of the population
         double crossoverRate = 0.8;
-        // the number of chromosomes that will be generated from crossover
-        int crossoverSize = (int) (populationSize * crossoverRate);
+        // the number of chromosomes that will be generated from crossover (two parents are needed for crossover)
+        int crossoverSize = populationSize < 2 ? 0 : (int) (populationSize * crossoverRate);
         // the probability that a chromosome can have a random mutation
         double mutationRate = 0.05;
-        // the number of generations
-        int generations = 5000;
-
-        // Initialising the distance matrix using the initialiseDistanceMatrix method
-        initialiseDistanceMatrix(cities);
-
-        // Generating the Initial Population
-        ArrayList<Chromosome> population = generatePopulation(cities, pathLength, populationSize);
-
-        // The following is done for each generation of the population
-        for (int i = 0; i < generations; i++) {
-            // calculating the fitness of every chromosome in the current generation
-            calculateFitnessOfPopulation(population);
-            // sort the population so that the chromosomes with the highest fitness are at the start of the list
-            Collections.sort(population);
-            // call the method which performs crossover on the population
-            Set<Chromosome> children = crossoverPopulation(population, populationSize, crossoverSize);
-            // carry out mutation on the children of the current population
-            children.addAll( mutatePopulation(children, mutationRate) );
-
-            // evolve the population
-            population.addAll(children);
-            ArrayList<Chromosome> currentGeneration = new ArrayList<>(population);
-            ArrayList<Chromosome> nextGeneration = evolvePopulation(currentGeneration, populationSize, cities, pathLength);
-            population = new ArrayList<>(nextGeneration);
-        }
 
-        // find the fittest chromosome
-        Chromosome fittestChromosome = population.get(0);
-        double maxFitness = population.get(0).fitness;
-        for (Chromosome c : population) {
-            if (c.fitness > maxFitness) {
-                maxFitness = c.fitness;
-                fittestChromosome = c;
+        // initialising the distances and local search of this instance
+        initialise(cities, distanceProvider);
+        // starting the worker threads, unless the GA should run on a single thread
+        pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        try {
+            TerminationPolicy.Tracker progress = termination.start();
+            Population population = evolve(instance, pathLength, populationSize, crossoverSize, mutationRate,
+                    progress);
+            int fittest = population.fittest();
+            int offset = population.offset(fittest);
+            return new TourResult(name(), instance.name,
+                    Arrays.copyOfRange(population.tours, offset, offset + pathLength),
+                    routeDistance(population.tours, offset, pathLength),
+                    progress.steps(), progress.evaluations(), progress.reason(),
+                    (System.nanoTime() - startTime) / 1000000);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+                pool = null;
             }
         }
-        // display the path and distance of the fittest chromosome
-        System.out.println(fittestChromosome.getPath());
-        System.out.println("Total Route Distance: " + routeDistance(fittestChromosome));
-
-        //printPopulation(population);
-    }
-
-
-    // this method calculates the distance between every pair of cities.
-    // when storing all the distances inside an array, the algorithms can check for the distance from this array
-    // in constant time, instead of calculating it every single time.
-    private static void initialiseDistanceMatrix(ArrayList<City> cities) {
-        // initialising the distanceMatrix as a new empty square 2D array, according to how many cities there are
-        distanceMatrix = new double[cities.size()][cities.size()];
-
-        for (int i = 0; i < cities.size(); i++) {
-            for (int j = 0; j < cities.size(); j++) {
-                // check if the distance between 2 cities has already been calculated
-                if (distanceMatrix[i][j] == 0.0) {
-                    // calculate the distance between cities i and j
-                    distanceMatrix[i][j] = Location.distance(cities.get(i).location, cities.get(j).location);
-                    // set the distance between cities j and i to the distance between cities i and j,
-                    // as these will always be equal given that this is a Symmetric TSP
-                    distanceMatrix[j][i] = distanceMatrix[i][j];
-                }
+    }
+
+
+    // method which returns the number of different tours through n cities, (n-1)!/2, or Long.MAX_VALUE if that
+    // is more than Integer.MAX_VALUE
+    private static long distinctTours(int n) {
+        long tours = 1;
+        for (int i = 3; i < n; i++) {
+            tours *= i;
+            if (tours > Integer.MAX_VALUE) {
+                return Long.MAX_VALUE;
             }
         }
+        return tours;
     }
 
 
-    // Method which generates a population using a combination of the Nearest Neighbour Algorithm and Randomly.
-    private static ArrayList<Chromosome> generatePopulation(ArrayList<City> cities, int pathLength, int populationSize) {
-        // generating part of the initial population using a Nearest Neighbour Algorithm
-        int nnPopulationSize = (int) (0.1*populationSize);
-        // if the required number of chromosomes to be generated by the NN Algorithm is greater then the number of cities
-        // then set the required number of chromosomes to the number of cities
-        if (nnPopulationSize > cities.size()) {
-            nnPopulationSize = cities.size();
-        }
-        ArrayList<Chromosome> nnPopulation = generateNearestNeighbourPopulation(pathLength, nnPopulationSize);
+    // method which prepares the state of the GA for the given instance. This is also used on its own by Benchmarks
+    void initialise(ArrayList<City> cities, DistanceProvider distanceProvider) {
+        // using the distances which were calculated for this instance
+        distances = distanceProvider;
+        // the local search only tries moves towards the nearest neighbours of every city
+        int[][] candidateLists = CandidateLists.build(cities, distanceProvider, CandidateLists.configuredSize());
+        localSearches = ThreadLocal.withInitial(() -> new LocalSearch(distanceProvider, candidateLists));
+        // the construction heuristics which build the tours the initial population is seeded with
+        heuristics = new ConstructionHeuristics(cities, distanceProvider, candidateLists);
+        offspring = ThreadLocal.withInitial(() -> new Population(2, cities.size()));
+    }
 
-        // generating the rest of the initial population randomly
-        int randomPopulationSize = populationSize - nnPopulationSize;
-        ArrayList<Chromosome> randomPopulation = new ArrayList<>();
-        randomPopulation.addAll( generateRandomPopulation(pathLength, randomPopulationSize) );
-
-        // Combining the 2 parts of the population into one initial population
-        ArrayList<Chromosome> population = new ArrayList<>();
-        population.addAll(nnPopulation);
-        population.addAll(randomPopulation);
-
-        return population;
-    }
-    // Method which returns an initial population using the Nearest Neighbour Algorithm
-    private static ArrayList<Chromosome> generateNearestNeighbourPopulation(int pathLength, int nnPopulationSize){
-        // declaring the arraylist of chromosomes which will store the
-        ArrayList<Chromosome> nnPopualtion = new ArrayList<>();
-
-        // declaring a set which will contain all the starting cities that will be used for the population
-        Set<Integer> startingCities = new HashSet<>();
-        // initialising the set of startingCities with random cities. It being a set no duplicates are allowed
-        while (startingCities.size() < nnPopulationSize) {
-            startingCities.add(ThreadLocalRandom.current().nextInt(0, pathLength));
-        }
 
-        // An ArrayList with all the cityIDs which can be copied to keep track of visited/unvisited cities
-        ArrayList<Integer> cities = new ArrayList<>();
-        for (int i = 0; i < pathLength; i++) {
-            cities.add(i);
+    // method which evolves the initial population (or the population of the checkpoint the run resumes from)
+    // until the termination policy stops the run, and returns the last generation.
+    // every generation is built in arenas which are allocated once per run (see Population): the children of
+    // crossover and the random immigrants are written into one arena, and the next generation is chosen from the
+    // parents and the children into a second arena of parents, which then takes the place of the first
+    private Population evolve(TSPInstance instance, int pathLength, int populationSize, int crossoverSize,
+                              double mutationRate, TerminationPolicy.Tracker progress) {
+
+        // the name of the telemetry and checkpoint files of this run
+        String baseName = this.runName == null ? name() : this.runName;
+        String runName = island == null ? baseName : baseName + "-island" + island.index;
+        Checkpoint checkpoint = Checkpoint.open(runName, instance);
+
+        // the number of pairs of parents needed, since every pair of parents produces 2 children
+        int numberOfPairs = (crossoverSize + 1) / 2;
+        // the number of random chromosomes added to the candidates for every next generation
+        int immigrants = (int) Math.round(immigrationRate * populationSize);
+
+        // the parents of the current generation, and the arena the next generation is chosen into
+        Population parents = new Population(populationSize, pathLength);
+        Population nextGeneration = new Population(populationSize, pathLength);
+        // the children of crossover, followed by the random immigrants
+        Population children = new Population(2 * numberOfPairs + immigrants, pathLength);
+        // the positions of the parents and of the children from the shortest to the longest, the lengths of the
+        // parents in that order (for the selection scheme), and the scratch array of the sorts
+        int[] parentOrder = new int[populationSize];
+        int[] childOrder = new int[children.capacity];
+        double[] sortedLengths = new double[populationSize];
+        int[] sortScratch = new int[Math.max(populationSize, children.capacity)];
+        // the least fit chromosome of the parents, which is what a child replaces in steady-state mode
+        IndexedHeap leastFit = new IndexedHeap(parents.lengths);
+
+        // Generating the Initial Population, unless the run carries on from a checkpoint
+        evaluations = 0;
+        ByteBuffer saved = checkpoint.resume(pathLength);
+        if (saved != null) {
+            readCheckpoint(saved, parents, progress);
+        } else {
+            generatePopulation(parents, populationSize);
         }
+        // the evaluations which have been added to the progress of the run
+        long evaluationsCounted = 0;
 
-        // for every starting city
-        for (Integer startingCity : startingCities) {
-            // set the currentCity as the Starting City
-            int currentCity = startingCity;
-            // Declare a new chromosome to store this new path
-            Chromosome chromosome = new Chromosome(pathLength);
-            // Set the first city in the path as the startingCity
-            chromosome.path[0] = startingCity;
-
-            // Declare a new Set of unvisitedCities, and initialise it as a copy of the ArrayList of cityIDs
-            Set<Integer> unvisitedCities = new HashSet<>(cities);
-            // remove the startingCity from the set of unvisitedCities
-            unvisitedCities.remove(startingCity);
-
-            // for the length of the path
-            for (int i = 1; i < pathLength; i++) {
-                // initially set the closestCity to a random city from the set of unvisitedCities
-                int closestCity = unvisitedCities.iterator().next();
-                // loop through every unvisitedCity to find the closestCity
-                for (Integer city : unvisitedCities) {
-                    // if the distance between the currentCity and the unvisitedCity is < the distance between
-                    // the currentCity and the closestCity
-                    if (distanceMatrix[currentCity][city] < distanceMatrix[currentCity][closestCity]) {
-                        // set thet unvisitedCity as the closestCity
-                        closestCity = city;
-                    }
+        // The following is done for each generation of the population
+        try (Telemetry telemetry = Telemetry.start(runName, instance.name, new String[] {"edgeDiversity", "duplicateRate"},
+                "fitness", "crossover", "mutation", "localSearch", "replacement")) {
+            for (int i = progress.steps(); !progress.isDone(); i++) {
+                long time = telemetry.now();
+                if (steadyState) {
+                    // crossover, mutation, local search and replacement are interleaved, so the whole generation
+                    // is recorded as crossover
+                    steadyStateGeneration(parents, leastFit, numberOfPairs, immigrants, mutationRate);
+                    time = telemetry.lap(PHASE_CROSSOVER, time);
+                } else {
+                    // every chromosome already knows its length, so ranking the parents is all that is left of the
+                    // fitness calculation
+                    parents.sortByLength(parentOrder, sortScratch);
+                    time = telemetry.lap(PHASE_FITNESS, time);
+                    // call the method which performs crossover on the population
+                    crossoverPopulation(parents, parentOrder, sortedLengths, children, numberOfPairs);
+                    time = telemetry.lap(PHASE_CROSSOVER, time);
+                    // carry out mutation on the children of the current population
+                    mutatePopulation(children, mutationRate);
+                    time = telemetry.lap(PHASE_MUTATION, time);
+                    // improve some of the children using local search (the memetic step)
+                    improvePopulation(children, localSearchRate);
+                    time = telemetry.lap(PHASE_LOCAL_SEARCH, time);
+
+                    // evolve the population
+                    addImmigrants(children, immigrants);
+                    evolvePopulation(parents, parentOrder, children, childOrder, sortScratch, nextGeneration,
+                            populationSize);
+                    Population previousGeneration = parents;
+                    parents = nextGeneration;
+                    nextGeneration = previousGeneration;
                 }
-                // add the closestCity as the next city in the path
-                chromosome.path[i] = closestCity;
-                // make the currentCity for the next iteration the current closestCity
-                currentCity = closestCity;
-                // remove the closestCity from the set of unvisitedCities
-                unvisitedCities.remove(closestCity);
-            }
+                // exchange migrants with the other islands
+                if (island != null) {
+                    island.migrate(i, parents);
+                }
+                telemetry.lap(PHASE_REPLACEMENT, time);
 
-            // add the generated chromosome to the ArrayList of the initial nnPopulation
-            nnPopualtion.add(chromosome);
+                // the fittest chromosomes are always kept, so the fittest of the population is the fittest found so far
+                progress.step(evaluations - evaluationsCounted, parents.lengths[parents.fittest()]);
+                evaluationsCounted = evaluations;
+                if (telemetry.shouldSample(i, progress.isDone())) {
+                    recordGeneration(telemetry, i, parents);
+                }
+                if (checkpoint.shouldSave(i, progress.isDone())) {
+                    writeCheckpoint(checkpoint, parents, progress);
+                }
+            }
         }
 
-        return nnPopualtion;
+        //printPopulation(parents);
+        return parents;
     }
-    // Method which returns a random initial population
-    private static Set<Chromosome> generateRandomPopulation(int pathLength, int randomPopulationSize) {
-        Set<Chromosome> population = new HashSet<>();
 
-        // create an arraylist of CityIDs, and initialise it with the cities in order of their ID
-        ArrayList<Integer> basePath = new ArrayList<>();
-        for (int i = 0; i < pathLength; i++) {
-            basePath.add(i);
-        }
 
-        // repeat the following for as many chromosomes as are required (populationSize)
-        while (population.size() < randomPopulationSize) {
-            Chromosome chromosome = new Chromosome(pathLength);
-            // randomise the order of the arraylist of cities
-            Collections.shuffle(basePath);
-            for (int j = 0; j < pathLength; j++) {
-                chromosome.path[j] = basePath.get(j);
+    // method which writes the progress of the run and every chromosome of the population to the checkpoint:
+    // the number of chromosomes, then the length and path of each.
+    // the fitness and fingerprint of a chromosome follow from its length and path, so they are not written
+    private static void writeCheckpoint(Checkpoint checkpoint, Population population,
+                                        TerminationPolicy.Tracker progress) {
+        int pathLength = population.pathLength;
+        long bytes = TerminationPolicy.Tracker.CHECKPOINT_BYTES + Integer.BYTES
+                + (long) population.size * (Double.BYTES + (long) pathLength * Integer.BYTES);
+        checkpoint.save(pathLength, bytes, buffer -> {
+            progress.writeTo(buffer);
+            buffer.putInt(population.size);
+            for (int i = 0; i < population.size; i++) {
+                buffer.putDouble(population.lengths[i]);
+                buffer.asIntBuffer().put(population.tours, population.offset(i), pathLength);
+                buffer.position(buffer.position() + pathLength * Integer.BYTES);
             }
-            population.add(chromosome);
-        }
+        });
+    }
 
-        return population;
+    // method which restores the progress of the run from a checkpoint, and the population written to it
+    // (as much of it as the population can hold)
+    private static void readCheckpoint(ByteBuffer saved, Population population, TerminationPolicy.Tracker progress) {
+        progress.readFrom(saved);
+        int pathLength = population.pathLength;
+        int savedSize = saved.getInt();
+        population.clear();
+        for (int i = 0; i < savedSize; i++) {
+            double length = saved.getDouble();
+            if (population.size < population.capacity) {
+                int chromosome = population.size++;
+                saved.asIntBuffer().get(population.tours, population.offset(chromosome), pathLength);
+                population.lengths[chromosome] = length;
+                population.hashes[chromosome] = TourHash.of(population.tours, population.offset(chromosome), pathLength);
+            }
+            saved.position(saved.position() + pathLength * Integer.BYTES);
+        }
+        // the chromosomes were read straight into the arrays of the population
+        population.reindex();
     }
 
 
-    private static void calculateFitnessOfPopulation(ArrayList<Chromosome> population) {
-        // for every chromosome in the population
-        for (Chromosome chromosome : population) {
-            // if the fitness of the chromosome has not yet been calculated (i.e. is still -1)
-            fitnessFunction(chromosome);
+    // method which writes the length of the best tour, the mean length, the edge diversity of a generation
+    // and the fraction of the chromosomes considered for it which were duplicates to the telemetry
+    private void recordGeneration(Telemetry telemetry, int generation, Population population) {
+        double sumOfDistances = 0;
+        for (int i = 0; i < population.size; i++) {
+            sumOfDistances += population.lengths[i];
         }
+        int best = population.fittest();
+        telemetry.record(generation, population.lengths[best], sumOfDistances / population.size,
+                edgeDiversity(population, best), (double) duplicatesRemoved / Math.max(1, candidatesConsidered));
     }
-    private static void fitnessFunction(Chromosome chromosome) {
-        chromosome.fitness = (double) ( (1/routeDistance(chromosome)) * 10000 );
-    }
-    private static double routeDistance(Chromosome chromosome) {
-        double totalDistance = 0.0;
-
-        // the sum of the distances between every 2 successive cities in a path
-        for (int i = 0; i < chromosome.path.length-1; i++) {
-            totalDistance += distanceMatrix[chromosome.path[i]][chromosome.path[i+1]];
+    // method which returns the average fraction of the edges of every chromosome which are not in the best
+    // chromosome's tour: 0 when the whole population is the same tour, close to 1 when the tours share nothing
+    private static double edgeDiversity(Population population, int best) {
+        int n = population.pathLength;
+        int[] tours = population.tours;
+        int bestOffset = population.offset(best);
+        // the neighbours of every city on the best tour
+        int[] next = new int[n];
+        int[] previous = new int[n];
+        for (int i = 0; i < n; i++) {
+            next[tours[bestOffset + i]] = tours[bestOffset + (i + 1) % n];
+            previous[tours[bestOffset + (i + 1) % n]] = tours[bestOffset + i];
         }
-        // plus the distance between the last city in the path back to the first city in the path
-        totalDistance += distanceMatrix[chromosome.path[chromosome.path.length-1]][chromosome.path[0]];
-
-        return totalDistance;
+        long differentEdges = 0;
+        for (int c = 0; c < population.size; c++) {
+            int offset = population.offset(c);
+            for (int i = 0; i < n; i++) {
+                int a = tours[offset + i];
+                int b = tours[offset + (i + 1) % n];
+                if (next[a] != b && previous[a] != b) {
+                    differentEdges++;
+                }
+            }
+        }
+        return (double) differentEdges / ((long) n * population.size);
     }
 
 
-    // Method which performs crossover on the population
-    private static Set<Chromosome> crossoverPopulation(ArrayList<Chromosome> population, int populationSize, int crossoverSize) {
-
-        // declare a set of chromosomes which will store all thr chromosomes generated by the crossover operation
-        Set<Chromosome> crossoverChromosomes = new HashSet<>();
-
-        while (crossoverChromosomes.size() < crossoverSize) {
-            // retrieve a set of chromosomes (of size 2) on which crossover will occur
-            // using the Rank-Based Roulette Wheel Selection method
-            Set<Chromosome> selectedChromosomes = rankBasedRouletteWheelSelection(population, populationSize);
+    // method which runs a task on the pool of worker threads (so that the streams inside it are split over
+    // those threads), or directly on the calling thread when the GA is running on a single thread
+    private void runOnWorkers(Runnable task) {
+        if (pool == null) {
+            task.run();
+        } else {
+            pool.submit(task).join();
+        }
+    }
+    // method which returns a stream which is split over the worker threads, or a sequential one if there are none
+    private IntStream range(int endExclusive) {
+        IntStream range = IntStream.range(0, endExclusive);
+        return pool == null ? range : range.parallel();
+    }
 
-            // store the 2 Chromosomes in parent 1 and parent 2
-            Chromosome parent1 = selectedChromosomes.iterator().next();
-            selectedChromosomes.remove(parent1);
-            Chromosome parent2 = selectedChromosomes.iterator().next();
 
-            // perform crossover using the crossoverChromosomes method
-            // the method is called twice, switching the order of the parents for the second time, since SCX produces only
-            // one child, however produces a different child when the parents are switched
-            crossoverChromosomes.add(crossover(parent1, parent2));
-            crossoverChromosomes.add(crossover(parent2, parent1));
+    // Method which generates a population using a combination of construction heuristics and Randomly.
+    private void generatePopulation(Population population, int populationSize) {
+        population.clear();
+        // starting from the tour the run was warm-started with, if it is a tour of this instance
+        if (warmStartTour != null && warmStartTour.length == population.pathLength) {
+            addTour(population, warmStartTour);
         }
-
-        return crossoverChromosomes;
-    }
-    private static Set<Chromosome> rankBasedRouletteWheelSelection(ArrayList<Chromosome> population, int populationSize) {
-        // set of chromosomes/paths on which crossover will be carried out
-        Set<Chromosome> selectedChromosomes = new HashSet<>();
-
-        // calculate the sum of all ranks, which will be used as a denominator for all probabilities
-        int sumOfRanks = (populationSize + 1) * populationSize / 2;
-
-        // declare an array of cumulative probabilities for all the chromosomes in the population
-        double[] cumulativeProbability = new double[populationSize];
-        // calculate the cumulative probability of the first chromosome as its probability
-        cumulativeProbability[0] = (double) populationSize / sumOfRanks;
-        // calculate the cumulative probabilities of all successive chromosomes:
-        for (int i = 1; i < populationSize; i++) {
-            // as the probability of this chromosomes based on its rank
-            double probability = (double) (populationSize-i) / sumOfRanks;
-            // plus the cumulative proability of the preceeding chromosome
-            cumulativeProbability[i] = cumulativeProbability[i-1] + probability;
+        // generating part of the initial population using construction heuristics
+        int heuristicPopulationSize = (int) (0.1*populationSize);
+        // if the required number of chromosomes to be generated by the heuristics is greater then the number of cities
+        // then set the required number of chromosomes to the number of cities
+        if (heuristicPopulationSize > population.pathLength) {
+            heuristicPopulationSize = population.pathLength;
         }
+        generateHeuristicPopulation(population, heuristicPopulationSize);
 
-        while (selectedChromosomes.size() < 2) {
-            // choose a chromosome randomly based on its cumulative probability (the lower the better)
-            double random = ThreadLocalRandom.current().nextDouble();
-            int choice = 0;
-            while (random > cumulativeProbability[choice]) {
-                choice++;
-            }
-
-            // add the chosen chromosome to the set of selectedChromosomes
-            selectedChromosomes.add(population.get(choice));
+        // generating the rest of the initial population randomly
+        generateRandomPopulation(population, populationSize);
+    }
+    // Method which adds up to heuristicPopulationSize different tours built by the construction heuristics to the
+    // population: the greedy edge tour, the space-filling curve tour, and Nearest Neighbour tours from different random
+    // starting cities. Tours which turn out to be the same are only kept once
+    private void generateHeuristicPopulation(Population population, int heuristicPopulationSize) {
+        if (heuristicPopulationSize == 0) {
+            return;
+        }
+        int size = population.size;
+        addTour(population, heuristics.greedyEdge());
+        if (heuristicPopulationSize > 1) {
+            addTour(population, heuristics.spaceFillingCurve());
         }
 
-        return selectedChromosomes;
+        // the remaining tours start from different random cities
+        int[] startingCities = ThreadLocalRandom.current().ints(0, population.pathLength).distinct()
+                .limit(heuristicPopulationSize - (population.size - size)).toArray();
+        for (int startingCity : startingCities) {
+            addTour(population, heuristics.nearestNeighbour(startingCity));
+        }
     }
-    /*
-    // Method which chooses which chromosomes will be used for crossover using Tournament Selection
-    private static Set<Chromosome> tournamentSelection(ArrayList<Chromosome> population, int tournamentSize) {
-        // set of chromosomes/paths on which crossover will be carried out
-        Set<Chromosome> tournamentChromosomes = new HashSet<>();
-
-        // carry out the tournament until the set of chromosomes selected from the tournament has reached the tournament size
-        while (tournamentChromosomes.size() < tournamentSize) {
-            // choose a random chromosome
-            int c1 = ThreadLocalRandom.current().nextInt(0, population.size());
-            // choose a random chromosome which is not c1
-            int c2;
-            do {
-                c2 = ThreadLocalRandom.current().nextInt(0, population.size());
-            } while (c1 == c2);
-
-            // if chromosome1 has a higher fitness than chromosome 2
-            if (population.get(c1).fitness > population.get(c2).fitness) {
-                // then add chromosome1 to the set of tournament chromosomes
-                tournamentChromosomes.add(population.get(c1));
-            } else {
-                // if not, add chromosome2 to the set
-                tournamentChromosomes.add(population.get(c2));
-            }
+    // Method which adds random tours to the population until it holds populationSize different tours
+    private void generateRandomPopulation(Population population, int populationSize) {
+        int[] path = new int[population.pathLength];
+        while (population.size < populationSize) {
+            randomTour(path, 0, path.length, ThreadLocalRandom.current());
+            addTour(population, path);
+        }
+    }
+    // method which evaluates a path and adds it to the population, unless the population already holds its tour
+    private void addTour(Population population, int[] path) {
+        evaluations++;
+        population.addDistinct(path, 0, routeDistance(path, 0, path.length), TourHash.of(path));
+    }
+    // method which writes a random order of every city into the path which starts at the given offset
+    private static void randomTour(int[] tours, int offset, int pathLength, Random random) {
+        for (int i = 0; i < pathLength; i++) {
+            tours[offset + i] = i;
+        }
+        // Fisher-Yates shuffle
+        for (int i = pathLength - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = tours[offset + i];
+            tours[offset + i] = tours[offset + j];
+            tours[offset + j] = temp;
         }
-
-        return tournamentChromosomes;
     }
-    */
-    private static Chromosome crossover(Chromosome parent1, Chromosome parent2) {
-
-        // store the length of the paths
-        int pathLength = parent1.path.length;
-
-        // Declare a new Chromosome for the child, and set its path to be the same as its parents
-        Chromosome child = new Chromosome(pathLength);
-        // Declare a Set of visitedNodes, which will be used to check if a node is legitimate
-        Set<Integer> visitedNodes = new HashSet<>();
-
-        // set the first node in parent 1's path as the first node in the child path
-        child.path[0] = parent1.path[0];
-        // and add it to the set of visited ndoes
-        visitedNodes.add(child.path[0]);
-
-        // find the successor of current node in both parents
-        for (int i = 0; i < pathLength-1; i++) {
-
-            // declare and initialise the currentNode
-            int currentNode = child.path[i];
-
-            // store at what index in the path the current node is in
-            int p1CurrentNodeIndex = -1;
-            int p2CurrentNodeIndex = -1;
 
-            // store the next legitimate node in a particular path
-            int p1NextNode = -1;
-            int p2NextNode = -1;
 
-            // find the index of the current node in p1
-            for (int j = 0; j < pathLength; j++) {
-                if (parent1.path[j] == currentNode) {
-                    p1CurrentNodeIndex = j;
-                    break;
-                }
-            }
-            // find the index of the current node in p2
-            for (int j = 0; j < pathLength; j++) {
-                if (parent2.path[j] == currentNode) {
-                    p2CurrentNodeIndex = j;
-                    break;
-                }
-            }
+    // method which returns the length of the path of the given length which starts at the given offset of an array
+    double routeDistance(int[] tours, int offset, int pathLength) {
+        // the sum of the distances between every 2 successive cities in a path, plus the distance between the last
+        // city in the path back to the first city in the path
+        return distances.tourLength(tours, offset, pathLength);
+    }
 
-            // find the next legitimate node in p1
-            for (int j = 1; j < pathLength; j++) {
-                // set the index such that once it reaches the end of the chromosome it starts back from the end
-                int index = p1CurrentNodeIndex + j;
-                index = (index >= pathLength) ? index-pathLength : index;
-
-                // if the node after is not already in the child chromosome, then it is legitimate
-                if (!visitedNodes.contains(parent1.path[index])) {
-                    // and set it as a candidate for the next node
-                    p1NextNode = parent1.path[index];
-                    break;
-                }
-            }
-            // find the next legitimate node in p2
-            for (int j = 1; j < pathLength; j++) {
-                // set the index such that once it reaches the end of the chromosome it starts back from the end
-                int index = p2CurrentNodeIndex + j;
-                index = (index >= pathLength) ? index-pathLength : index;
-
-                if (!visitedNodes.contains(parent2.path[index])) {
-                    p2NextNode = parent2.path[index];
-                    break;
-                }
-            }
 
-            // if the distance between the current city and the next legitimate city in parent1
-            // is shorter than the distance from current city to the next legitimate node in p2
-            if (distanceMatrix[currentNode][p1NextNode] < distanceMatrix[currentNode][p2NextNode]) {
-                child.path[i + 1] = p1NextNode;
-                visitedNodes.add(p1NextNode);
-            } else {
-                child.path[i + 1] = p2NextNode;
-                visitedNodes.add(p2NextNode);
-            }
+    // Method which performs crossover on the parents, writing 2 children per pair of parents into the children.
+    // the selection scheme is prepared once from the lengths of the parents in the order given (from the fittest to the
+    // least fit chromosome), after which every pair of children is independent of the others, so the pairs are
+    // generated over the worker threads, each of which selects its parents using its own ThreadLocalRandom
+    private void crossoverPopulation(Population parents, int[] parentOrder, double[] sortedLengths,
+                                     Population children, int numberOfPairs) {
+        for (int rank = 0; rank < parents.size; rank++) {
+            sortedLengths[rank] = parents.lengths[parentOrder[rank]];
         }
+        selection.prepare(sortedLengths, parents.size);
+
+        children.clear();
+        children.size = 2 * numberOfPairs;
+        runOnWorkers(() -> range(numberOfPairs).forEach(pair -> {
+            // select 2 different chromosomes on which crossover will occur
+            // (by default using the Rank-Based Roulette Wheel Selection method)
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = selection.select(random);
+            int second;
+            do {
+                second = selection.select(random);
+            } while (second == first);
 
-        return child;
-    }
+            // the positions of the 2 parents
+            int parent1 = parentOrder[first];
+            int parent2 = parentOrder[second];
 
+            // perform crossover using the crossover method
+            // the method is called twice, switching the order of the parents for the second time, since SCX produces only
+            // one child, however produces a different child when the parents are switched
+            crossover(parents, parent1, parent2, children, 2 * pair);
+            crossover(parents, parent2, parent1, children, 2 * pair + 1);
+        }));
+        evaluations += children.size;
+    }
+    // method which performs Sequential Constructive Crossover (SCX) on two parents, writing one child into the children.
+    // the work is done by the calling thread's CrossoverEngine, which builds the child in O(n)
+    void crossover(Population parents, int parent1, int parent2, Population children, int child) {
+        crossoverEngines.get().crossover(parents, parent1, parent2, children, child, distances);
+    }
 
-    private static Set<Chromosome> mutatePopulation(Set<Chromosome> population, double mutationRate) {
-        // declare a set of Chromosomes which will store the mutated chromosomes.
-        // initialise it as a copy of the population (the children chromosomes)
-        Set<Chromosome> mutatedChromosomes = new HashSet<>(population);
 
-        for (Chromosome path : mutatedChromosomes) {
+    // method which mutates some of the children in place. Each child is mutated independently of the others,
+    // so the children are split over the worker threads
+    private void mutatePopulation(Population population, double mutationRate) {
+        LongAdder mutated = new LongAdder();
+        runOnWorkers(() -> range(population.size).forEach(chromosome -> {
             double mutationProbability = ThreadLocalRandom.current().nextDouble();
             if (mutationProbability > (1-mutationRate)) {
-                // mutate the path using the RSM mutation operator
-                mutateRoute(path);
-                // indicate that the fitness of this path needs to be recalculated
-                path.fitness = -1;
+                // mutate the path using the RSM mutation operator, which also updates its length and fingerprint
+                mutateRoute(population, chromosome);
+                mutated.increment();
             }
+        }));
+        evaluations += mutated.sum();
+    }
+    // method which improves some of the children in place using local search. Each child is improved independently
+    // of the others, so the children are split over the worker threads
+    private void improvePopulation(Population population, double localSearchRate) {
+        if (localSearchRate <= 0) {
+            return;
         }
-
-        // The set will most probably include certain chromosomes which are already present in the set of children
-        // however, given that both are sets, any duplicates will be discarded
-        return mutatedChromosomes;
+        LongAdder improved = new LongAdder();
+        runOnWorkers(() -> range(population.size).forEach(chromosome -> {
+            if (ThreadLocalRandom.current().nextDouble() < localSearchRate) {
+                int offset = population.offset(chromosome);
+                // the local search returns how much shorter it made the path
+                population.lengths[chromosome] -= localSearches.get().improve(population.tours, offset);
+                // the local search may have replaced any number of edges, so the fingerprint is calculated again
+                population.hashes[chromosome] = TourHash.of(population.tours, offset, population.pathLength);
+                improved.increment();
+            }
+        }));
+        evaluations += improved.sum();
     }
-    // method which performs Reverse Sequence Mutation (RSM) on a Chromosome
-    private static void mutateRoute(Chromosome chromosome) {
-        int pathLength = chromosome.path.length;
+    // method which performs Reverse Sequence Mutation (RSM) on the chromosome at the given position of a population,
+    // updating its length and fingerprint from the two edges which the reversal changes
+    void mutateRoute(Population population, int chromosome) {
+        int pathLength = population.pathLength;
+        int[] tours = population.tours;
+        int offset = population.offset(chromosome);
 
         // setting position a for the RSM mutation as a random city between the first and penultimate city in the route
         int a = ThreadLocalRandom.current().nextInt(0, pathLength-1);
         // setting position b for the RSM mutation as a random city between a and the last city in the route
         int b = ThreadLocalRandom.current().nextInt(a, pathLength);
 
+        population.lengths[chromosome] += reversalDelta(tours, offset, pathLength, a, b);
+        population.hashes[chromosome] ^= TourHash.reversalDelta(tours, offset, pathLength, a, b);
+
+        a += offset;
+        b += offset;
         while (a < b){
-            int temp = chromosome.path[a];
-            chromosome.path[a] = chromosome.path[b];
-            chromosome.path[b] = temp;
+            int temp = tours[a];
+            tours[a] = tours[b];
+            tours[b] = temp;
 
             a++;
             b--;
@@ -426,46 +567,180 @@ public class GeneticAlgorithm {
     }
 
 
-    // method which evolves the population. this method will take the current population, which includes the
-    // last generation's population, the children, and some mutated children, introduces a new 'initial' population
-    // and chooses the fittest chromosomes from the entire population for the next generation
-    private static ArrayList<Chromosome> evolvePopulation(ArrayList<Chromosome> currentGeneration, int populationSize,
-                                                          ArrayList<City> cities, int pathLength) {
-        // declare a Set of Chromosomes which will store the Chromosomes that will be present in the next generation
-        // ( i.e.the fittest )
-        Set<Chromosome> nextGeneration = new HashSet<>();
-
-        // add another set of nearest neighbour + randomly generated chromosomes to re-introduce diversity
-        // and thus avoiding getting caught on local maxima
-        currentGeneration.addAll(generatePopulation(cities, pathLength, populationSize));
-        // calculate the fitness of all the Chromosomes in the population
-        calculateFitnessOfPopulation(currentGeneration);
-        // sort the population so that the chromosomes with the highest fitness are at the start of the list
-        Collections.sort(currentGeneration);
-
-        // keep adding chromosomes from the fittest of the currentGeneration until either the required population size is reached
-        // or before an out of bounds occurs (i.e. not enough non-duplicate chromosomes
-        int i = 0;
-        while (nextGeneration.size() < populationSize && i < currentGeneration.size()) {
-            nextGeneration.add(currentGeneration.get(i));
-            i++;
+    // method which returns by how much the length of a path changes when the cities from position a to position b
+    // are reversed. Only the edge entering the segment and the edge leaving it change, so this takes O(1) time
+    private double reversalDelta(int[] tours, int offset, int pathLength, int a, int b) {
+        // reversing nothing, or the whole path (which is the same tour travelled backwards), changes nothing
+        if (a == b || (a == 0 && b == pathLength - 1)) {
+            return 0.0;
         }
+        int before = tours[offset + (a == 0 ? pathLength - 1 : a - 1)];
+        int after = tours[offset + (b == pathLength - 1 ? 0 : b + 1)];
+        int first = tours[offset + a];
+        int last = tours[offset + b];
+        return distances.distance(before, last) + distances.distance(first, after)
+                - distances.distance(before, first) - distances.distance(last, after);
+    }
 
-        // if the population size of the next generation is less than what it should be
-        while (nextGeneration.size() < populationSize) {
-            // keep adding an 'initial' population until it is of the required size
-            nextGeneration.addAll(generatePopulation(cities, pathLength, populationSize-nextGeneration.size()));
+
+    // method which adds random chromosomes after the children, to re-introduce diversity and thus avoid getting
+    // caught on local maxima (the heuristic tours are only built once, for the initial population, since they would be
+    // much the same tours every time). Each immigrant is independent of the others, so they are split over the workers
+    private void addImmigrants(Population children, int immigrants) {
+        int first = children.size;
+        children.size += immigrants;
+        int pathLength = children.pathLength;
+        runOnWorkers(() -> range(immigrants).forEach(immigrant -> {
+            int chromosome = first + immigrant;
+            int offset = children.offset(chromosome);
+            randomTour(children.tours, offset, pathLength, ThreadLocalRandom.current());
+            children.lengths[chromosome] = routeDistance(children.tours, offset, pathLength);
+            children.hashes[chromosome] = TourHash.of(children.tours, offset, pathLength);
+        }));
+        evaluations += immigrants;
+    }
+
+
+    // method which chooses the next generation. the candidates are the parents (given from the fittest to the least
+    // fit), the children and the immigrants, and the fittest of them are copied into the next generation, leaving out
+    // every tour which is already in it. If there are not enough different tours, random chromosomes make up the rest
+    private void evolvePopulation(Population parents, int[] parentOrder, Population children, int[] childOrder,
+                                  int[] sortScratch, Population nextGeneration, int populationSize) {
+        children.sortByLength(childOrder, sortScratch);
+        nextGeneration.clear();
+
+        // merge the parents and the children from the fittest to the least fit until either the required population
+        // size is reached or every candidate has been considered. A parent goes first when it is as fit as a child
+        int parent = 0;
+        int child = 0;
+        duplicatesRemoved = 0;
+        while (nextGeneration.size < populationSize && (parent < parents.size || child < children.size)) {
+            Population source;
+            int chromosome;
+            if (child == children.size || (parent < parents.size
+                    && parents.lengths[parentOrder[parent]] <= children.lengths[childOrder[child]])) {
+                source = parents;
+                chromosome = parentOrder[parent++];
+            } else {
+                source = children;
+                chromosome = childOrder[child++];
+            }
+            if (!nextGeneration.addDistinct(source.tours, source.offset(chromosome), source.lengths[chromosome],
+                    source.hashes[chromosome])) {
+                duplicatesRemoved++;
+            }
         }
+        candidatesConsidered = parent + child;
+
+        // if the population size of the next generation is less than what it should be,
+        // keep adding random chromosomes until it is of the required size
+        generateRandomPopulation(nextGeneration, populationSize);
+    }
+
 
-        return new ArrayList<>(nextGeneration);
+
+    // method which performs a generation's worth of steady-state reproduction: as many children and immigrants as a
+    // generation of the generational GA makes, each of which replaces the least fit chromosome of the population as
+    // soon as it is made, if it is fitter than it and not already in the population. Nothing waits for the rest of
+    // the generation, so the pairs of parents are spread over the worker threads, later pairs can already choose the
+    // children of earlier ones, and the population is never sorted: the parents are chosen by tournaments and the
+    // least fit chromosome is the top of an indexed heap of the lengths, which is restored in O(log P) per child
+    private void steadyStateGeneration(Population population, IndexedHeap leastFit, int numberOfPairs,
+                                       int immigrants, double mutationRate) {
+        // the population may have changed since the last generation (migrants, or the checkpoint it resumed from)
+        leastFit.build(population.size);
+        duplicatesRemoved = 0;
+        candidatesConsidered = 0;
+        int pathLength = population.pathLength;
+        // the children made, mutated and improved by the workers
+        LongAdder evaluated = new LongAdder();
+
+        runOnWorkers(() -> range(numberOfPairs + immigrants).forEach(task -> {
+            Population children = offspring.get();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (task < numberOfPairs) {
+                populationLock.readLock().lock();
+                try {
+                    // select 2 different chromosomes on which crossover will occur
+                    int parent1 = tournament(population, random);
+                    int parent2;
+                    do {
+                        parent2 = tournament(population, random);
+                    } while (parent2 == parent1);
+                    crossover(population, parent1, parent2, children, 0);
+                    crossover(population, parent2, parent1, children, 1);
+                } finally {
+                    populationLock.readLock().unlock();
+                }
+                children.size = 2;
+                evaluated.add(2);
+                // the children are the thread's own, so they are mutated and improved without holding the lock
+                for (int child = 0; child < children.size; child++) {
+                    if (random.nextDouble() < mutationRate) {
+                        mutateRoute(children, child);
+                        evaluated.increment();
+                    }
+                    if (random.nextDouble() < localSearchRate) {
+                        int offset = children.offset(child);
+                        children.lengths[child] -= localSearches.get().improve(children.tours, offset);
+                        children.hashes[child] = TourHash.of(children.tours, offset, pathLength);
+                        evaluated.increment();
+                    }
+                }
+            } else {
+                // a random immigrant
+                randomTour(children.tours, 0, pathLength, random);
+                children.lengths[0] = routeDistance(children.tours, 0, pathLength);
+                children.hashes[0] = TourHash.of(children.tours, 0, pathLength);
+                children.size = 1;
+            }
+
+            populationLock.writeLock().lock();
+            try {
+                for (int child = 0; child < children.size; child++) {
+                    replaceLeastFit(population, leastFit, children, child);
+                }
+            } finally {
+                populationLock.writeLock().unlock();
+            }
+        }));
+        evaluations += evaluated.sum() + immigrants;
+    }
+    // method which returns the position of the fittest of tournamentSize chromosomes of the population chosen
+    // uniformly at random (with replacement)
+    private int tournament(Population population, Random random) {
+        int winner = random.nextInt(population.size);
+        for (int i = 1; i < tournamentSize; i++) {
+            int challenger = random.nextInt(population.size);
+            if (population.lengths[challenger] < population.lengths[winner]) {
+                winner = challenger;
+            }
+        }
+        return winner;
+    }
+    // method which replaces the least fit chromosome of the population by the given child, if the child is fitter
+    // and its tour is not already in the population
+    private void replaceLeastFit(Population population, IndexedHeap leastFit, Population children, int child) {
+        candidatesConsidered++;
+        int replaced = leastFit.top();
+        if (children.lengths[child] >= population.lengths[replaced]) {
+            return;
+        }
+        int offset = children.offset(child);
+        if (population.contains(children.tours, offset, children.hashes[child])) {
+            duplicatesRemoved++;
+            return;
+        }
+        population.set(replaced, children.tours, offset, children.lengths[child], children.hashes[child]);
+        leastFit.changed(replaced);
     }
 
 
 
     // Methods used for debugging:
-    public static void printPopulation(ArrayList<Chromosome> population) {
-        for (Chromosome chromosome : population) {
-            System.out.println(chromosome);
+    public static void printPopulation(Population population) {
+        for (int i = 0; i < population.size; i++) {
+            System.out.println(population.chromosome(i));
         }
     }
 }
@@ -0,0 +1,83 @@
+// Indexed binary max-heap of the chromosomes of a Population, ordered by their lengths, so the least fit chromosome
+// is always on top. The heap holds positions in the population rather than chromosomes, and reads their keys straight
+// from the population's array of lengths, so nothing is boxed or compared through compareTo. Since it also knows
+// where every position is in the heap, the chromosome at any position can be replaced and the heap restored in
+// O(log P), which is what the steady-state GA does with every child that replaces the least fit chromosome
+public class IndexedHeap {
+
+    // the key of every position (the lengths of the population, which are read but never changed by the heap)
+    private final double[] keys;
+    // the positions in heap order: the children of heap[i] are heap[2i+1] and heap[2i+2]
+    private final int[] heap;
+    // the index in heap of every position
+    private final int[] where;
+    private int size;
+
+    public IndexedHeap(double[] keys) {
+        this.keys = keys;
+        this.heap = new int[keys.length];
+        this.where = new int[keys.length];
+    }
+
+    // method which builds the heap from the first size positions in O(size)
+    public void build(int size) {
+        this.size = size;
+        for (int i = 0; i < size; i++) {
+            heap[i] = i;
+            where[i] = i;
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    // method which returns the position with the largest key
+    public int top() {
+        return heap[0];
+    }
+
+    // method which restores the heap after the key of the given position has changed
+    public void changed(int position) {
+        int i = where[position];
+        siftUp(i);
+        siftDown(where[position]);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (keys[heap[parent]] >= keys[heap[i]]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int largest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && keys[heap[left]] > keys[heap[largest]]) {
+                largest = left;
+            }
+            if (right < size && keys[heap[right]] > keys[heap[largest]]) {
+                largest = right;
+            }
+            if (largest == i) {
+                return;
+            }
+            swap(i, largest);
+            i = largest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int temp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = temp;
+        where[heap[i]] = i;
+        where[heap[j]] = j;
+    }
+}
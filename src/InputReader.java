@@ -1,60 +1,390 @@
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Locale;
 
+// Reader for TSPLIB files. The file is memory-mapped and scanned byte by byte: the header is read first
+// (NAME, TYPE, DIMENSION, EDGE_WEIGHT_TYPE, EDGE_WEIGHT_FORMAT), the coordinate arrays are sized from DIMENSION,
+// and then the NODE_COORD_SECTION, DISPLAY_DATA_SECTION and EDGE_WEIGHT_SECTION are parsed straight into them,
+// without creating a String for every line or number. TSPLIB text which is already in memory (e.g. received by
+// SolveServer) is parsed the same way by parseInstance.
 public class InputReader {
 
-    // method which reads the input from one input TSP instance given its path and turns it into an ArrayList of Citiess
+    // the formats of an EDGE_WEIGHT_SECTION which are supported. Since only symmetric instances are supported,
+    // the column-wise formats list the same values as the corresponding row-wise ones
+    private enum WeightFormat { FULL_MATRIX, UPPER_ROW, LOWER_ROW, UPPER_DIAG_ROW, LOWER_DIAG_ROW }
+
+    // the contents of the file, and the position of the next byte to be read
+    private final ByteBuffer buffer;
+    private final int length;
+    private int position;
+
+    private InputReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.length = buffer.limit();
+        this.position = 0;
+    }
+
+    // method which reads the input from one input TSP instance given its path and turns it into an ArrayList of Cities.
+    // a file which cannot be read is reported as an UncheckedIOException instead of being treated as an empty instance
     public static ArrayList<City> readInput(String path) {
+        try {
+            return readInstance(path).cities();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // method which reads one TSPLIB file given its path
+    public static TSPInstance readInstance(String path) throws IOException {
         Path filePath = Paths.get(path);
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + ": file is too large");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                return new InputReader(buffer).parse(filePath.getFileName().toString());
+            } catch (IOException e) {
+                throw new IOException(path + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    // method which parses TSPLIB text which is already in memory. The name is used if the text has no NAME line
+    public static TSPInstance parseInstance(byte[] text, String name) throws IOException {
+        return new InputReader(ByteBuffer.wrap(text)).parse(name);
+    }
+
+    // method which parses the header and the data sections of the file
+    private TSPInstance parse(String fileName) throws IOException {
+        String name = fileName.replaceFirst("\\.tsp$", "");
+        int dimension = -1;
+        TSPInstance.EdgeWeightType edgeWeightType = null;
+        WeightFormat weightFormat = null;
+        double[] x = null;
+        double[] y = null;
+        double[] weights = null;
+
+        while (skipWhitespace()) {
+            String line = readLine();
+            int colon = line.indexOf(':');
+            String key = (colon == -1 ? line : line.substring(0, colon)).trim().toUpperCase(Locale.ROOT);
+            String value = colon == -1 ? "" : line.substring(colon + 1).trim();
+
+            switch (key) {
+                case "NAME":
+                    name = value;
+                    break;
+                case "TYPE":
+                    if (!value.toUpperCase(Locale.ROOT).startsWith("TSP")) {
+                        throw new IOException("only symmetric TSP instances are supported, not " + value);
+                    }
+                    break;
+                case "DIMENSION":
+                    try {
+                        dimension = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        throw new IOException("invalid DIMENSION " + value);
+                    }
+                    break;
+                case "EDGE_WEIGHT_TYPE":
+                    edgeWeightType = parseEdgeWeightType(value);
+                    break;
+                case "EDGE_WEIGHT_FORMAT":
+                    weightFormat = parseWeightFormat(value);
+                    break;
+                case "NODE_COORD_SECTION":
+                    requireDimension(dimension);
+                    requireNumbers(3L * dimension, dimension);
+                    if (x == null) {
+                        x = new double[dimension];
+                        y = new double[dimension];
+                    }
+                    readCoordinates(x, y, dimension);
+                    break;
+                case "DISPLAY_DATA_SECTION":
+                    requireDimension(dimension);
+                    requireNumbers(3L * dimension, dimension);
+                    // the display data is only used as coordinates if the file has no node coordinates
+                    if (x == null) {
+                        x = new double[dimension];
+                        y = new double[dimension];
+                        readCoordinates(x, y, dimension);
+                    } else {
+                        readCoordinates(new double[dimension], new double[dimension], dimension);
+                    }
+                    break;
+                case "EDGE_WEIGHT_SECTION":
+                    requireDimension(dimension);
+                    if (weightFormat == null) {
+                        throw new IOException("EDGE_WEIGHT_SECTION without an EDGE_WEIGHT_FORMAT");
+                    }
+                    if (!PackedTriangularMatrix.fitsInArray(dimension)) {
+                        throw new IOException("DIMENSION " + dimension + " is too large for explicit weights");
+                    }
+                    requireNumbers(weightCount(dimension, weightFormat), dimension);
+                    weights = readWeights(dimension, weightFormat);
+                    break;
+                case "EOF":
+                    position = length;
+                    break;
+                default:
+                    // COMMENT, NODE_COORD_TYPE, DISPLAY_DATA_TYPE and other keywords do not affect the distances
+                    break;
+            }
+        }
+
+        requireDimension(dimension);
+        if (edgeWeightType == null) {
+            edgeWeightType = TSPInstance.EdgeWeightType.EUCLIDEAN;
+        }
+        if (edgeWeightType == TSPInstance.EdgeWeightType.EXPLICIT && weights == null) {
+            throw new IOException("EXPLICIT instance without an EDGE_WEIGHT_SECTION");
+        }
+        if (edgeWeightType != TSPInstance.EdgeWeightType.EXPLICIT && x == null) {
+            throw new IOException(edgeWeightType + " instance without a NODE_COORD_SECTION");
+        }
+        return new TSPInstance(name, dimension, edgeWeightType, x, y, weights);
+    }
+
+    private static void requireDimension(int dimension) throws IOException {
+        if (dimension <= 0) {
+            throw new IOException("missing or invalid DIMENSION");
+        }
+    }
+
+    // method which checks that the rest of the file is long enough to hold the given number of numbers (each of which
+    // takes at least one digit and one separator), before arrays are sized from the DIMENSION of the header, so that
+    // a small file with a huge DIMENSION is rejected rather than allocating the arrays
+    private void requireNumbers(long numbers, int dimension) throws IOException {
+        if (numbers > (length - position + 1L) / 2) {
+            throw new IOException("DIMENSION " + dimension + " is larger than the data in the file");
+        }
+    }
+
+    // method which returns the number of weights listed by an EDGE_WEIGHT_SECTION of the given format
+    private static long weightCount(int dimension, WeightFormat format) {
+        long n = dimension;
+        switch (format) {
+            case FULL_MATRIX:
+                return n * n;
+            case UPPER_ROW:
+            case LOWER_ROW:
+                return n * (n - 1) / 2;
+            default:
+                return n * (n + 1) / 2;
+        }
+    }
 
+    private static TSPInstance.EdgeWeightType parseEdgeWeightType(String value) throws IOException {
         try {
-            List<String> lines = Files.readAllLines(filePath);
-            return  parseCities(lines);
-        } catch (IOException e) {
-            //e.printStackTrace();
-            return new ArrayList<>();
+            return TSPInstance.EdgeWeightType.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("unsupported EDGE_WEIGHT_TYPE " + value);
         }
     }
 
-    // method which parses each line inside the text file
-    private static ArrayList<City> parseCities(List<String> lines) {
-        ArrayList<City> cities = new ArrayList<>();
+    private static WeightFormat parseWeightFormat(String value) throws IOException {
+        switch (value.toUpperCase(Locale.ROOT)) {
+            case "FULL_MATRIX":
+                return WeightFormat.FULL_MATRIX;
+            case "UPPER_ROW":
+            case "LOWER_COL":
+                return WeightFormat.UPPER_ROW;
+            case "LOWER_ROW":
+            case "UPPER_COL":
+                return WeightFormat.LOWER_ROW;
+            case "UPPER_DIAG_ROW":
+            case "LOWER_DIAG_COL":
+                return WeightFormat.UPPER_DIAG_ROW;
+            case "LOWER_DIAG_ROW":
+            case "UPPER_DIAG_COL":
+                return WeightFormat.LOWER_DIAG_ROW;
+            default:
+                throw new IOException("unsupported EDGE_WEIGHT_FORMAT " + value);
+        }
+    }
 
-        for (final String line : lines) {
-            // splitting each line by spaces
-            final String[] details = line.trim().split("\\s+");
-            City city = parseCity(details);
-            if (city != null) {
-                cities.add(city);
-            } else {
-                continue;
+    // method which reads 'dimension' lines of "<city number> <x> <y>" into the coordinate arrays. Every city must be
+    // listed exactly once
+    private void readCoordinates(double[] x, double[] y, int dimension) throws IOException {
+        boolean[] listed = new boolean[dimension];
+        for (int i = 0; i < dimension; i++) {
+            int city = (int) readNumber() - 1;
+            if (city < 0 || city >= dimension) {
+                throw new IOException("city number " + (city + 1) + " is outside 1.." + dimension);
             }
+            if (listed[city]) {
+                throw new IOException("city number " + (city + 1) + " is listed more than once");
+            }
+            listed[city] = true;
+            x[city] = readNumber();
+            y[city] = readNumber();
         }
-        return cities;
     }
 
-    // method which parses each individual line in the text file and stores it in a City Data Structure
-    private static City parseCity(String[] details) {
-        // making sure exactly 3 values were extracted from the line of the input file
-        if (details.length == 3) {
-            try {
-                int cityID = Integer.parseInt(details[0].trim());
-                Location location = parseLocation(details[1].trim(), details[2].trim());
+    // method which reads the weights of an EDGE_WEIGHT_SECTION into a packed upper triangle
+    private double[] readWeights(int dimension, WeightFormat format) throws IOException {
+        double[] weights = new double[(int) PackedTriangularMatrix.entries(dimension)];
+        for (int i = 0; i < dimension; i++) {
+            // the range of columns listed on row i
+            int from;
+            int to;
+            switch (format) {
+                case FULL_MATRIX:
+                    from = 0;
+                    to = dimension - 1;
+                    break;
+                case UPPER_ROW:
+                    from = i + 1;
+                    to = dimension - 1;
+                    break;
+                case LOWER_ROW:
+                    from = 0;
+                    to = i - 1;
+                    break;
+                case UPPER_DIAG_ROW:
+                    from = i;
+                    to = dimension - 1;
+                    break;
+                default:
+                    from = 0;
+                    to = i;
+                    break;
+            }
+            for (int j = from; j <= to; j++) {
+                double weight = readNumber();
+                if (i != j) {
+                    weights[PackedTriangularMatrix.index(dimension, i, j)] = weight;
+                }
+            }
+        }
+        return weights;
+    }
+
+    // method which moves past spaces, tabs and line breaks. Returns false if the end of the file was reached
+    private boolean skipWhitespace() {
+        while (position < length) {
+            byte b = buffer.get(position);
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return true;
+            }
+            position++;
+        }
+        return false;
+    }
+
+    // method which returns the rest of the current line (only used for the few lines of the header)
+    private String readLine() {
+        int start = position;
+        while (position < length && buffer.get(position) != '\n') {
+            position++;
+        }
+        byte[] bytes = new byte[position - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII).trim();
+    }
 
-                return new City(cityID, location);
-            } catch (NumberFormatException e) {
-                return null;
+    // method which reads the next number in the file, which may have a sign, a fractional part and an exponent.
+    // the digits are accumulated into a long, and the decimal point and exponent are applied with a single
+    // multiplication or division by an exact power of ten, so the result is correctly rounded
+    private double readNumber() throws IOException {
+        if (!skipWhitespace()) {
+            throw new IOException("unexpected end of file");
+        }
+        int start = position;
+
+        boolean negative = false;
+        byte b = buffer.get(position);
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            position++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int decimalExponent = 0;
+        boolean sawPoint = false;
+        while (position < length) {
+            b = buffer.get(position);
+            if (b >= '0' && b <= '9') {
+                if (mantissa < 100000000000000000L) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (sawPoint) {
+                        decimalExponent--;
+                    }
+                } else if (!sawPoint) {
+                    // digits beyond what fits in the mantissa only scale the integer part
+                    decimalExponent++;
+                }
+                digits++;
+            } else if (b == '.' && !sawPoint) {
+                sawPoint = true;
+            } else {
+                break;
             }
+            position++;
         }
-        return null;
+        if (digits == 0) {
+            throw new IOException("expected a number at byte " + start);
+        }
+
+        if (position < length && (buffer.get(position) == 'e' || buffer.get(position) == 'E')) {
+            position++;
+            boolean negativeExponent = false;
+            if (position < length && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+                negativeExponent = buffer.get(position) == '-';
+                position++;
+            }
+            int exponent = 0;
+            while (position < length && buffer.get(position) >= '0' && buffer.get(position) <= '9') {
+                // an exponent this large already makes every mantissa overflow (or underflow), and must not wrap
+                if (exponent < 100000) {
+                    exponent = exponent * 10 + (buffer.get(position) - '0');
+                }
+                position++;
+            }
+            decimalExponent += negativeExponent ? -exponent : exponent;
+        }
+
+        double value;
+        if (decimalExponent == 0) {
+            value = mantissa;
+        } else if (decimalExponent < 0 && decimalExponent >= -22 && mantissa < (1L << 53)) {
+            value = mantissa / POWERS_OF_TEN[-decimalExponent];
+        } else if (decimalExponent > 0 && decimalExponent <= 22 && mantissa < (1L << 53)) {
+            value = mantissa * POWERS_OF_TEN[decimalExponent];
+        } else {
+            // numbers which cannot be converted exactly this way (which do not occur in TSPLIB) are re-read by the JDK
+            value = Math.abs(Double.parseDouble(text(start, position)));
+        }
+        if (Double.isInfinite(value)) {
+            throw new IOException("the number at byte " + start + " is too large");
+        }
+        return negative ? -value : value;
     }
 
-    // method which parses the location in the text file as 2 co ordinates in the Location Data Structure
-    private static Location parseLocation(String x, String y) throws NumberFormatException{
-        return new Location(Double.parseDouble(x), Double.parseDouble(y));
+    // the powers of ten which can be represented exactly as doubles
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private String text(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,42 @@
+// Distance store which keeps the distances of the upper triangle as integers. The distances of EUC_2D, CEIL_2D, ATT
+// and GEO instances are whole numbers by definition, so for those this is exact and uses the same memory as
+// FloatDistanceMatrix. Distances which are not whole numbers are rounded to the nearest integer.
+public class IntDistanceMatrix extends PackedTriangularMatrix {
+
+    // the rounded distances of the upper triangle, row by row
+    private final int[] distances;
+
+    public IntDistanceMatrix(TSPInstance instance) {
+        super(instance.dimension);
+        distances = new int[(int) entries(n)];
+        fill(instance);
+    }
+
+    // method which returns how many bytes this store would need for n cities
+    public static long bytesRequired(int n) {
+        return entries(n) * Integer.BYTES;
+    }
+
+    @Override
+    protected void store(int index, double distance) {
+        distances[index] = (int) (distance + 0.5);
+    }
+
+    @Override
+    public double distance(int a, int b) {
+        if (a == b) {
+            return 0.0;
+        }
+        return distances[index(a, b)];
+    }
+
+    @Override
+    public long memoryFootprint() {
+        return bytesRequired(n);
+    }
+
+    @Override
+    public String description() {
+        return "packed int (rounded) upper-triangular";
+    }
+}
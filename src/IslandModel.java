@@ -0,0 +1,250 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Island model of the GA: several GeneticAlgorithm populations ('islands') evolve independently, each on its own
+// thread, and every few generations each island sends copies of its fittest chromosomes to other islands.
+// The islands never wait for one another: the migrants are handed over through a lock-free queue per island, which
+// the receiving island empties whenever it next migrates, replacing its least fit chromosomes with fitter migrants.
+// Every island stops according to the termination policy (which applies to each island on its own), and once one
+// island stops because it reached the target length or was interrupted, the other islands are stopped as well.
+// The settings can be given on the command line:
+//   -Dtsp.islands=<islands>                    (default: the number of cores, at least 2)
+//   -Dtsp.migrationInterval=<generations>      (default: 50)
+//   -Dtsp.migrants=<chromosomes>               (default: 2)
+//   -Dtsp.topology=ring|fully_connected|random (default: ring)
+public class IslandModel implements Solver {
+
+    // which islands an island sends its migrants to:
+    // RING to the next island, FULLY_CONNECTED to every other island, RANDOM to one other island chosen every time
+    public enum Topology { RING, FULLY_CONNECTED, RANDOM }
+
+    private int islands = Integer.getInteger("tsp.islands", Math.max(2, Runtime.getRuntime().availableProcessors()));
+    private int migrationInterval = Integer.getInteger("tsp.migrationInterval", 50);
+    private int migrants = Integer.getInteger("tsp.migrants", 2);
+    private Topology topology =
+            Topology.valueOf(System.getProperty("tsp.topology", "ring").trim().toUpperCase(Locale.ROOT));
+    // when every island stops (null for the GA's default policy)
+    private TerminationPolicy termination;
+    // the tour the first island starts from (null to start from scratch), which migration spreads to the others
+    private int[] warmStartTour;
+
+    public void setIslands(int numberOfIslands) {
+        islands = Math.max(1, numberOfIslands);
+    }
+
+    public void setMigrationInterval(int generations) {
+        migrationInterval = Math.max(1, generations);
+    }
+
+    public void setMigrants(int chromosomes) {
+        migrants = Math.max(0, chromosomes);
+    }
+
+    public void setTopology(Topology migrationTopology) {
+        topology = migrationTopology;
+    }
+
+    public void setTermination(TerminationPolicy policy) {
+        termination = policy;
+    }
+
+    @Override
+    public void warmStart(int[] tour) {
+        warmStartTour = tour == null ? null : tour.clone();
+    }
+
+    @Override
+    public String name() {
+        return "GA-islands";
+    }
+
+    // method which evolves every island on its own thread, and returns the shortest tour found by any of them.
+    // if the calling thread is interrupted, every island is stopped and the best tour found so far is returned
+    @Override
+    public TourResult solve(TSPInstance instance, DistanceProvider distances) {
+        long startTime = System.nanoTime();
+
+        // set once every island should stop
+        AtomicBoolean stop = new AtomicBoolean();
+        Island[] archipelago = new Island[islands];
+        for (int i = 0; i < islands; i++) {
+            archipelago[i] = new Island(i, archipelago, stop);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(islands);
+        List<Future<TourResult>> runs = new ArrayList<>();
+        try {
+            for (Island island : archipelago) {
+                GeneticAlgorithm ga = new GeneticAlgorithm();
+                // the islands themselves are the unit of parallelism
+                ga.setParallelism(1);
+                if (termination != null) {
+                    ga.setTermination(termination);
+                }
+                ga.setIsland(island);
+                if (island.index == 0) {
+                    ga.warmStart(warmStartTour);
+                }
+                runs.add(executor.submit(() -> {
+                    TourResult result = ga.solve(instance, distances);
+                    // the island interrupts its own thread when the islands are told to stop (see migrate), which
+                    // must not be left set on the thread of the pool
+                    Thread.interrupted();
+                    // once an island has reached the target (or was interrupted) there is no point in going on
+                    if (result.stopReason == TerminationPolicy.Reason.TARGET_LENGTH
+                            || result.stopReason == TerminationPolicy.Reason.INTERRUPTED) {
+                        stop.set(true);
+                    }
+                    return result;
+                }));
+            }
+
+            TourResult best = null;
+            // why the run stopped: the islands which were stopped by another island report INTERRUPTED, so this is
+            // the reason of the first island which stopped by itself (unless the calling thread was interrupted)
+            TerminationPolicy.Reason stopReason = null;
+            int steps = 0;
+            long evaluations = 0;
+            boolean interrupted = false;
+            for (Future<TourResult> run : runs) {
+                TourResult result = null;
+                while (result == null) {
+                    try {
+                        result = run.get();
+                    } catch (InterruptedException e) {
+                        // stop every island, and wait for them to return the best tours they have found
+                        interrupted = true;
+                        stop.set(true);
+                    } catch (ExecutionException e) {
+                        throw new IllegalStateException("an island failed", e.getCause());
+                    }
+                }
+                steps = Math.max(steps, result.steps);
+                evaluations += result.evaluations;
+                if (stopReason == null && result.stopReason != TerminationPolicy.Reason.INTERRUPTED) {
+                    stopReason = result.stopReason;
+                }
+                if (best == null || result.length < best.length) {
+                    best = result;
+                }
+            }
+            if (interrupted || stopReason == null) {
+                stopReason = TerminationPolicy.Reason.INTERRUPTED;
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return new TourResult(name(), instance.name, best.tour, best.length, steps, evaluations, stopReason,
+                    (System.nanoTime() - startTime) / 1000000);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+
+    // One island of the archipelago: the queue through which it receives migrants, and the islands it sends its own
+    // migrants to. Its GeneticAlgorithm calls migrate() after every generation
+    final class Island {
+        // the number of the island, used to name its telemetry
+        final int index;
+        private final Island[] archipelago;
+        private final AtomicBoolean stop;
+        // the migrants sent to this island which it has not taken in yet
+        private final ConcurrentLinkedQueue<Migrant> inbox = new ConcurrentLinkedQueue<>();
+
+        private Island(int index, Island[] archipelago, AtomicBoolean stop) {
+            this.index = index;
+            this.archipelago = archipelago;
+            this.stop = stop;
+        }
+
+        // method which, every migrationInterval generations, sends copies of the fittest chromosomes of the population
+        // to the neighbouring islands, and replaces the least fit chromosomes of the population by the migrants
+        // received since the last migration which are fitter than them and not already in the population.
+        // once the islands are told to stop, this interrupts the island's thread so that its GA stops after this generation
+        void migrate(int generation, Population population) {
+            if (stop.get()) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if ((generation + 1) % migrationInterval != 0 || archipelago.length < 2) {
+                return;
+            }
+
+            // the emigrants are copies which no island changes, so the same copies are sent to every neighbour
+            List<Migrant> emigrants = fittest(population, migrants);
+            for (Island neighbour : neighbours()) {
+                neighbour.inbox.addAll(emigrants);
+            }
+
+            Migrant immigrant;
+            while ((immigrant = inbox.poll()) != null) {
+                int leastFit = population.leastFit();
+                if (immigrant.length < population.lengths[leastFit]
+                        && !population.contains(immigrant.path, 0, immigrant.hash)) {
+                    population.set(leastFit, immigrant.path, 0, immigrant.length, immigrant.hash);
+                }
+            }
+        }
+
+        // method which returns the islands this island sends its migrants to, according to the topology
+        private List<Island> neighbours() {
+            List<Island> neighbours = new ArrayList<>();
+            int count = archipelago.length;
+            switch (topology) {
+                case RING:
+                    neighbours.add(archipelago[(index + 1) % count]);
+                    break;
+                case FULLY_CONNECTED:
+                    for (Island island : archipelago) {
+                        if (island != this) {
+                            neighbours.add(island);
+                        }
+                    }
+                    break;
+                default:
+                    // any island other than this one
+                    int other = ThreadLocalRandom.current().nextInt(count - 1);
+                    neighbours.add(archipelago[other >= index ? other + 1 : other]);
+                    break;
+            }
+            return neighbours;
+        }
+    }
+
+    // A chromosome sent from one island to another: a copy of its path, with its length and fingerprint, which the
+    // receiving island copies straight into its population
+    private static final class Migrant {
+        final int[] path;
+        final double length;
+        final long hash;
+
+        private Migrant(int[] path, double length, long hash) {
+            this.path = path;
+            this.length = length;
+            this.hash = hash;
+        }
+    }
+
+    // method which returns copies of the k fittest chromosomes of a population, from the fittest to the least fit
+    private static List<Migrant> fittest(Population population, int k) {
+        int[] order = new int[population.size];
+        population.sortByLength(order, new int[population.size]);
+        List<Migrant> fittest = new ArrayList<>();
+        for (int i = 0; i < Math.min(k, population.size); i++) {
+            int offset = population.offset(order[i]);
+            fittest.add(new Migrant(Arrays.copyOfRange(population.tours, offset, offset + population.pathLength),
+                    population.lengths[order[i]], population.hashes[order[i]]));
+        }
+        return fittest;
+    }
+}
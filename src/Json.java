@@ -0,0 +1,241 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Minimal JSON reader and writer for the requests and responses of SolveServer, so that the program needs nothing
+// beyond the JDK. A JSON text is read into Maps (objects, keeping the order of their members), Lists (arrays),
+// Doubles (numbers), Strings, Booleans and null. Malformed text is reported as an IllegalArgumentException which
+// gives the position of the error. Since the reader is recursive, arrays and objects may only be nested MAX_DEPTH
+// deep, so that a small body of "[[[[..." cannot overflow the stack.
+public final class Json {
+
+    // the deepest nesting of arrays and objects which is read (a job is only nested 3 deep)
+    private static final int MAX_DEPTH = 32;
+
+    // the text being read, the position of the next character, and the number of arrays and objects it is inside
+    private final String text;
+    private int position;
+    private int depth;
+
+    private Json(String text) {
+        this.text = text;
+        this.position = 0;
+    }
+
+    // method which reads one JSON value, which must make up the whole text
+    public static Object parse(String text) {
+        Json json = new Json(text);
+        Object value = json.readValue();
+        json.skipWhitespace();
+        if (json.position < text.length()) {
+            throw json.error("unexpected text after the value");
+        }
+        return value;
+    }
+
+    // method which returns a string as a quoted JSON string
+    public static String quote(String string) {
+        StringBuilder quoted = new StringBuilder(string.length() + 2).append('"');
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private Object readValue() {
+        skipWhitespace();
+        if (position >= text.length()) {
+            throw error("unexpected end of the text");
+        }
+        char c = text.charAt(position);
+        switch (c) {
+            case '{':
+                return readObject();
+            case '[':
+                return readArray();
+            case '"':
+                return readString();
+            case 't':
+                return readLiteral("true", Boolean.TRUE);
+            case 'f':
+                return readLiteral("false", Boolean.FALSE);
+            case 'n':
+                return readLiteral("null", null);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return readNumber();
+                }
+                throw error("unexpected character '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        enter();
+        Map<String, Object> object = new LinkedHashMap<>();
+        position++;
+        skipWhitespace();
+        if (consume('}')) {
+            depth--;
+            return object;
+        }
+        do {
+            skipWhitespace();
+            if (position >= text.length() || text.charAt(position) != '"') {
+                throw error("expected the name of a member");
+            }
+            String name = readString();
+            skipWhitespace();
+            if (!consume(':')) {
+                throw error("expected ':'");
+            }
+            object.put(name, readValue());
+            skipWhitespace();
+        } while (consume(','));
+        if (!consume('}')) {
+            throw error("expected ',' or '}'");
+        }
+        depth--;
+        return object;
+    }
+
+    private List<Object> readArray() {
+        enter();
+        List<Object> array = new ArrayList<>();
+        position++;
+        skipWhitespace();
+        if (consume(']')) {
+            depth--;
+            return array;
+        }
+        do {
+            array.add(readValue());
+            skipWhitespace();
+        } while (consume(','));
+        if (!consume(']')) {
+            throw error("expected ',' or ']'");
+        }
+        depth--;
+        return array;
+    }
+
+    // method which is called at the start of every array and object
+    private void enter() {
+        if (++depth > MAX_DEPTH) {
+            throw error("arrays and objects are nested more than " + MAX_DEPTH + " deep");
+        }
+    }
+
+    private String readString() {
+        StringBuilder string = new StringBuilder();
+        position++;
+        while (position < text.length()) {
+            char c = text.charAt(position++);
+            if (c == '"') {
+                return string.toString();
+            }
+            if (c != '\\') {
+                string.append(c);
+                continue;
+            }
+            if (position >= text.length()) {
+                break;
+            }
+            char escaped = text.charAt(position++);
+            switch (escaped) {
+                case 'b':
+                    string.append('\b');
+                    break;
+                case 'f':
+                    string.append('\f');
+                    break;
+                case 'n':
+                    string.append('\n');
+                    break;
+                case 'r':
+                    string.append('\r');
+                    break;
+                case 't':
+                    string.append('\t');
+                    break;
+                case 'u':
+                    if (position + 4 > text.length()) {
+                        throw error("incomplete \\u escape");
+                    }
+                    try {
+                        string.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("invalid \\u escape");
+                    }
+                    position += 4;
+                    break;
+                default:
+                    // \" \\ and \/
+                    string.append(escaped);
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    private Double readNumber() {
+        int start = position;
+        while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) != -1) {
+            position++;
+        }
+        try {
+            return Double.valueOf(text.substring(start, position));
+        } catch (NumberFormatException e) {
+            position = start;
+            throw error("invalid number");
+        }
+    }
+
+    private Object readLiteral(String literal, Object value) {
+        if (!text.startsWith(literal, position)) {
+            throw error("unexpected character '" + text.charAt(position) + "'");
+        }
+        position += literal.length();
+        return value;
+    }
+
+    private boolean consume(char c) {
+        if (position < text.length() && text.charAt(position) == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("invalid JSON at character " + position + ": " + message);
+    }
+}
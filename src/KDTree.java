@@ -0,0 +1,285 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// 2-dimensional k-d tree over the coordinates of the cities of an instance.
+// It is used to find the nearest neighbours of a city without having to compare it with every other city,
+// so that building the neighbour lists of all the cities takes O(n log n) instead of O(n^2).
+// Cities can also be removed from the tree, to find the nearest city which has not been removed yet (e.g. the nearest
+// unvisited city while building a tour). Every sub-tree counts the cities left in it, so that sub-trees whose cities
+// have all been removed are skipped. The removals are not synchronized, so only one thread may use them at a time.
+public class KDTree {
+
+    // the coordinates of every city, indexed by city
+    private final double[] x;
+    private final double[] y;
+    // the cities, ordered such that the sub-tree covering the range [lo, hi) has the city at (lo+hi)/2 as its root,
+    // the cities in [lo, mid) on the lower side of the split and the cities in (mid, hi) on the upper side.
+    // the root of the whole tree splits on x, and the axis alternates on every level
+    private final int[] points;
+
+    // the state of the current k-nearest query. The k best cities found so far are kept in a max-heap on distance,
+    // so that the furthest of them can be replaced in O(log k)
+    private int[] heapCities;
+    private double[] heapDistances;
+    private int heapSize;
+
+    // the position of every city in points, whether every city has been removed, and for every sub-tree (at the
+    // position of its root) the number of its cities which have not been removed
+    private final int[] positions;
+    private final boolean[] removed;
+    private final int[] remaining;
+    // the state of the current nearest remaining city query
+    private int nearestCity;
+    private double nearestDistance;
+
+    public KDTree(ArrayList<City> cities) {
+        int n = cities.size();
+        x = new double[n];
+        y = new double[n];
+        points = new int[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = cities.get(i).location.x;
+            y[i] = cities.get(i).location.y;
+            points[i] = i;
+        }
+        build(0, n, 0);
+
+        positions = new int[n];
+        for (int i = 0; i < n; i++) {
+            positions[points[i]] = i;
+        }
+        removed = new boolean[n];
+        remaining = new int[n];
+        restoreAll();
+    }
+
+    // method which recursively arranges the cities in [lo, hi) such that the median on the current axis is in the middle
+    private void build(int lo, int hi, int depth) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, depth % 2 == 0);
+        build(lo, mid, depth + 1);
+        build(mid + 1, hi, depth + 1);
+    }
+
+    // method which partially sorts points[lo..hi] (Quickselect), such that the city at position k is the one which would
+    // be there if the range were sorted on the given axis, with smaller cities before it and larger cities after it
+    private void select(int lo, int hi, int k, boolean onX) {
+        while (hi > lo) {
+            double pivot = coordinate(points[(lo + hi) >>> 1], onX);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (coordinate(points[i], onX) < pivot) {
+                    i++;
+                }
+                while (coordinate(points[j], onX) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int temp = points[i];
+                    points[i] = points[j];
+                    points[j] = temp;
+                    i++;
+                    j--;
+                }
+            }
+            // only carry on in the part of the range which contains position k
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private double coordinate(int city, boolean onX) {
+        return onX ? x[city] : y[city];
+    }
+
+    // method which returns the k cities closest to the given city (not including the city itself),
+    // ordered from the closest to the furthest
+    public synchronized int[] nearest(int city, int k) {
+        k = Math.min(k, points.length - 1);
+        heapCities = new int[k];
+        heapDistances = new double[k];
+        heapSize = 0;
+
+        if (k > 0) {
+            search(0, points.length, 0, city);
+        }
+
+        // empty the max-heap from the back, which leaves the cities ordered from the closest to the furthest
+        int[] nearest = new int[k];
+        for (int i = k - 1; i >= 0; i--) {
+            nearest[i] = heapCities[0];
+            removeFurthest();
+        }
+        return nearest;
+    }
+
+    // method which visits the sub-tree covering [lo, hi), first on the side of the split the query city is on,
+    // and then on the other side only if the splitting line is closer than the furthest of the k best cities so far
+    private void search(int lo, int hi, int depth, int city) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        int root = points[mid];
+        if (root != city) {
+            offer(root, squaredDistance(root, city));
+        }
+
+        boolean onX = depth % 2 == 0;
+        double difference = coordinate(city, onX) - coordinate(root, onX);
+        if (difference < 0) {
+            search(lo, mid, depth + 1, city);
+            if (heapSize < heapCities.length || difference * difference < heapDistances[0]) {
+                search(mid + 1, hi, depth + 1, city);
+            }
+        } else {
+            search(mid + 1, hi, depth + 1, city);
+            if (heapSize < heapCities.length || difference * difference < heapDistances[0]) {
+                search(lo, mid, depth + 1, city);
+            }
+        }
+    }
+
+    // method which puts every removed city back into the tree
+    public void restoreAll() {
+        Arrays.fill(removed, false);
+        count(0, points.length);
+    }
+
+    private int count(int lo, int hi) {
+        if (lo >= hi) {
+            return 0;
+        }
+        int mid = (lo + hi) >>> 1;
+        remaining[mid] = 1 + count(lo, mid) + count(mid + 1, hi);
+        return remaining[mid];
+    }
+
+    // method which removes a city from the tree, so that nearestRemaining() does not return it any more
+    public void remove(int city) {
+        if (removed[city]) {
+            return;
+        }
+        removed[city] = true;
+        int position = positions[city];
+        int lo = 0;
+        int hi = points.length;
+        while (true) {
+            int mid = (lo + hi) >>> 1;
+            remaining[mid]--;
+            if (position == mid) {
+                return;
+            }
+            if (position < mid) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+    }
+
+    // method which returns the city closest to the given city out of the cities which have not been removed
+    // (not including the city itself), or -1 if every other city has been removed
+    public int nearestRemaining(int city) {
+        nearestCity = -1;
+        nearestDistance = Double.POSITIVE_INFINITY;
+        searchRemaining(0, points.length, 0, city);
+        return nearestCity;
+    }
+
+    // method which visits the sub-tree covering [lo, hi) like search(), skipping the sub-trees with no cities left
+    private void searchRemaining(int lo, int hi, int depth, int city) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (remaining[mid] == 0) {
+            return;
+        }
+        int root = points[mid];
+        if (root != city && !removed[root]) {
+            double distance = squaredDistance(root, city);
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearestCity = root;
+            }
+        }
+
+        boolean onX = depth % 2 == 0;
+        double difference = coordinate(city, onX) - coordinate(root, onX);
+        if (difference < 0) {
+            searchRemaining(lo, mid, depth + 1, city);
+            if (difference * difference < nearestDistance) {
+                searchRemaining(mid + 1, hi, depth + 1, city);
+            }
+        } else {
+            searchRemaining(mid + 1, hi, depth + 1, city);
+            if (difference * difference < nearestDistance) {
+                searchRemaining(lo, mid, depth + 1, city);
+            }
+        }
+    }
+
+    private double squaredDistance(int a, int b) {
+        double dx = x[a] - x[b];
+        double dy = y[a] - y[b];
+        return dx * dx + dy * dy;
+    }
+
+    // method which adds a city to the k best cities found so far, if it is closer than the furthest of them
+    private void offer(int city, double distance) {
+        if (heapSize < heapCities.length) {
+            // sift the new city up from the bottom of the heap
+            int i = heapSize++;
+            while (i > 0 && heapDistances[(i - 1) / 2] < distance) {
+                heapCities[i] = heapCities[(i - 1) / 2];
+                heapDistances[i] = heapDistances[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            heapCities[i] = city;
+            heapDistances[i] = distance;
+        } else if (distance < heapDistances[0]) {
+            // replace the furthest city with the new one, and sift it down
+            siftDown(city, distance);
+        }
+    }
+
+    // method which removes the furthest city from the heap
+    private void removeFurthest() {
+        heapSize--;
+        if (heapSize > 0) {
+            siftDown(heapCities[heapSize], heapDistances[heapSize]);
+        }
+    }
+
+    // method which places the given city at the top of the heap and moves it down until the heap is ordered again
+    private void siftDown(int city, double distance) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapDistances[child + 1] > heapDistances[child]) {
+                child++;
+            }
+            if (heapDistances[child] <= distance) {
+                break;
+            }
+            heapCities[i] = heapCities[child];
+            heapDistances[i] = heapDistances[child];
+            i = child;
+        }
+        heapCities[i] = city;
+        heapDistances[i] = distance;
+    }
+}
@@ -0,0 +1,129 @@
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Distance store which does not keep a matrix at all. Rows of the distance matrix are calculated from the
+// instance (usually from the coordinates of the cities) the first time they are needed, and a bounded number of them
+// are kept in a cache which evicts rows by the CLOCK (second chance) policy, an approximation of least-recently-used.
+// This is used for instances which are too large for any of the packed matrices.
+// The ants, the GA workers and the islands all look distances up at the same time, so a lookup takes no lock: the
+// cached rows are volatile references in an array indexed by city, and a lookup only sets the row's "referenced" flag.
+// Only a miss takes the lock, to choose the row it evicts, and only after it has calculated its row.
+public class LazyDistanceRows implements DistanceProvider {
+
+    // the instance whose distances are calculated, and the kernel which calculates them
+    private final TSPInstance instance;
+    private final DistanceKernel kernel;
+    // the maximum number of rows which are kept in the cache
+    private final int maxCachedRows;
+    // the cached row of every city (null if it is not cached)
+    private final AtomicReferenceArray<double[]> rows;
+    // whether the row of every city was used since the clock hand last passed it. Set by the lookups without any
+    // synchronisation, since a flag which is seen late only makes the eviction a little less accurate
+    private final boolean[] referenced;
+    // the cities whose rows are cached, in the order the clock hand passes them, the number of them, and the position
+    // of the hand. Guarded by the lock of the object
+    private final int[] slots;
+    private int usedSlots;
+    private int hand;
+
+    // counters of how many lookups were answered from the cache and how many rows had to be calculated
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public LazyDistanceRows(TSPInstance instance, int maxCachedRows) {
+        this.instance = instance;
+        this.kernel = DistanceKernel.create(instance);
+        this.maxCachedRows = Math.max(1, Math.min(maxCachedRows, instance.dimension));
+        this.rows = new AtomicReferenceArray<>(instance.dimension);
+        this.referenced = new boolean[instance.dimension];
+        this.slots = new int[this.maxCachedRows];
+    }
+
+    // method which returns how many bytes a single cached row takes up for n cities
+    public static long bytesPerRow(int n) {
+        return (long) n * Double.BYTES;
+    }
+
+    @Override
+    public int size() {
+        return instance.dimension;
+    }
+
+    @Override
+    public double distance(int a, int b) {
+        // the matrix is symmetric, so either row a or row b can answer the lookup
+        double[] row = rows.get(a);
+        if (row != null) {
+            referenced[a] = true;
+            hits.increment();
+            return row[b];
+        }
+        row = rows.get(b);
+        if (row != null) {
+            referenced[b] = true;
+            hits.increment();
+            return row[a];
+        }
+        misses.increment();
+        row = calculateRow(a);
+        cache(a, row);
+        return row[b];
+    }
+
+    // method which adds the row of city a to the cache, evicting the first row the clock hand finds which was not
+    // used since the hand last passed it. If another thread has cached the row in the meantime, its row is kept
+    private synchronized void cache(int a, double[] row) {
+        if (rows.get(a) != null) {
+            return;
+        }
+        if (usedSlots < slots.length) {
+            slots[usedSlots++] = a;
+        } else {
+            while (referenced[slots[hand]]) {
+                referenced[slots[hand]] = false;
+                hand = (hand + 1) % slots.length;
+            }
+            rows.set(slots[hand], null);
+            slots[hand] = a;
+            hand = (hand + 1) % slots.length;
+        }
+        referenced[a] = true;
+        rows.set(a, row);
+    }
+
+    // method which calculates the distance from city a to every other city
+    private double[] calculateRow(int a) {
+        double[] row = new double[instance.dimension];
+        kernel.row(a, 0, row.length, row, 0);
+        return row;
+    }
+
+    // batches of distances are calculated by the kernel rather than looked up one at a time, since the rows they
+    // need are unlikely to be cached
+    @Override
+    public void distances(int a, int[] cities, int count, double[] out) {
+        kernel.gather(a, cities, count, out);
+    }
+
+    @Override
+    public double tourLength(int[] tours, int offset, int pathLength) {
+        return kernel.tourLength(tours, offset, pathLength);
+    }
+
+    // method which returns the fraction of lookups which were answered from the cache
+    public double hitRate() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+    }
+
+    @Override
+    public long memoryFootprint() {
+        return maxCachedRows * bytesPerRow(instance.dimension);
+    }
+
+    @Override
+    public String description() {
+        return "lazy rows (cache of " + maxCachedRows + " rows, " + kernel.description() + " kernel)";
+    }
+}
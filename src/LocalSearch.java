@@ -0,0 +1,283 @@
+// Local search which improves a tour (given as an int[] of cities) using 2-opt and Or-opt moves until neither can
+// shorten it any further.
+// - a 2-opt move removes two edges and reconnects the tour the other way round, by reversing the part in between
+// - an Or-opt move takes a segment of 1 to 3 consecutive cities out of the tour and puts it back between two other
+//   cities, either way round
+// Only moves which create an edge between a city and one of its nearest neighbours are tried, and every city has a
+// "don't look" bit which is set once no move around it improves the tour, and cleared again when one of its edges
+// changes. Only the cities whose bit is clear are looked at, which keeps a full pass close to linear time.
+// The arrays are kept and reused from one tour to the next, so a LocalSearch should only be used by one thread.
+public class LocalSearch {
+
+    // the longest segment which is moved by an Or-opt move
+    private static final int maxSegmentLength = 3;
+    // the smallest gain which counts as an improvement, so that rounding errors cannot make the search cycle
+    private static final double epsilon = 1e-9;
+
+    // the distances between every pair of cities
+    private final DistanceProvider distances;
+    // the nearest neighbours of every city, ordered from the closest to the furthest
+    private final int[][] neighbours;
+    // the number of cities
+    private final int n;
+
+    // the tour being improved, and the position of every city inside it
+    private int[] tour;
+    private final int[] position;
+    // the don't look bit of every city
+    private final boolean[] dontLook;
+    // the copy of a path of a Population which is being improved
+    private final int[] scratch;
+    // circular queue of the cities whose don't look bit is clear
+    private final int[] queue;
+    private int queueHead;
+    private int queueSize;
+
+    public LocalSearch(DistanceProvider distances, int[][] neighbours) {
+        this.distances = distances;
+        this.neighbours = neighbours;
+        this.n = distances.size();
+        this.position = new int[n];
+        this.dontLook = new boolean[n];
+        this.queue = new int[n];
+        this.scratch = new int[n];
+    }
+
+    // method which improves the path of n cities which starts at the given offset of an array (see Population)
+    // in place, and returns by how much its length was reduced
+    public double improve(int[] tours, int offset) {
+        System.arraycopy(tours, offset, scratch, 0, n);
+        double gain = improve(scratch);
+        System.arraycopy(scratch, 0, tours, offset, n);
+        return gain;
+    }
+
+    // method which improves the given tour in place, and returns by how much its length was reduced
+    public double improve(int[] tour) {
+        if (n < 5) {
+            return 0.0;
+        }
+        this.tour = tour;
+        queueHead = 0;
+        queueSize = 0;
+        for (int i = 0; i < n; i++) {
+            position[tour[i]] = i;
+            dontLook[tour[i]] = true;
+            wake(tour[i]);
+        }
+
+        double totalGain = 0.0;
+        while (queueSize > 0) {
+            // take the next city whose don't look bit is clear, and set its bit. If a move around it improves the
+            // tour, the move clears the bit again (along with those of the other cities whose edges changed)
+            int city = queue[queueHead];
+            queueHead = (queueHead + 1) % n;
+            queueSize--;
+            dontLook[city] = true;
+
+            totalGain += improveCity(city);
+        }
+
+        this.tour = null;
+        return totalGain;
+    }
+
+    // method which tries the moves around one city, applies the first which shortens the tour and returns its gain
+    // (or 0 if none of them do)
+    private double improveCity(int a) {
+        double gain = twoOptMove(a, true);
+        if (gain > 0) {
+            return gain;
+        }
+        gain = twoOptMove(a, false);
+        if (gain > 0) {
+            return gain;
+        }
+        for (int length = 1; length <= maxSegmentLength; length++) {
+            gain = orOptMove(a, length);
+            if (gain > 0) {
+                return gain;
+            }
+        }
+        return 0.0;
+    }
+
+    // method which tries the 2-opt moves which replace the edge between a and its successor (or predecessor) b
+    // with an edge between a and one of its neighbours c
+    private double twoOptMove(int a, boolean forwards) {
+        int b = forwards ? next(a) : previous(a);
+        double removedAB = distances.distance(a, b);
+
+        for (int c : neighbours[a]) {
+            double addedAC = distances.distance(a, c);
+            // the neighbours are ordered by distance, so once the new edge is not shorter than the removed one
+            // no further neighbour can make the move an improvement
+            if (addedAC >= removedAB) {
+                break;
+            }
+            int d = forwards ? next(c) : previous(c);
+            if (c == b || d == a) {
+                continue;
+            }
+
+            double gain = removedAB + distances.distance(c, d) - addedAC - distances.distance(b, d);
+            if (gain > epsilon) {
+                if (forwards) {
+                    // a b ... c d  becomes  a c ... b d
+                    reverse(position[b], position[c]);
+                } else {
+                    // d c ... b a  becomes  d b ... c a
+                    reverse(position[c], position[b]);
+                }
+                wake(a);
+                wake(b);
+                wake(c);
+                wake(d);
+                return gain;
+            }
+        }
+        return 0.0;
+    }
+
+    // method which tries to move the segment of the given length starting at city s1 between a neighbour of one
+    // of its end cities and that neighbour's successor or predecessor
+    private double orOptMove(int s1, int length) {
+        if (length + 3 > n) {
+            return 0.0;
+        }
+        int firstPosition = position[s1];
+        int lastPosition = (firstPosition + length - 1) % n;
+        int s2 = tour[lastPosition];
+        int p = previous(s1);
+        int nx = next(s2);
+
+        // the gain from taking the segment out and joining p and nx directly
+        double removalGain = distances.distance(p, s1) + distances.distance(s2, nx) - distances.distance(p, nx);
+        if (removalGain <= epsilon) {
+            return 0.0;
+        }
+
+        // try to connect either end of the segment to one of its neighbours
+        for (int end = 0; end < 2; end++) {
+            int endCity = end == 0 ? s1 : s2;
+            int otherEnd = end == 0 ? s2 : s1;
+
+            for (int c : neighbours[endCity]) {
+                double addedEdge = distances.distance(endCity, c);
+                if (addedEdge >= removalGain) {
+                    break;
+                }
+                if (isInSegment(c, firstPosition, length)) {
+                    continue;
+                }
+                // the segment goes either between c and its successor, or between its predecessor and c,
+                // with endCity next to c
+                for (int side = 0; side < 2; side++) {
+                    int other = side == 0 ? next(c) : previous(c);
+                    if (isInSegment(other, firstPosition, length)) {
+                        continue;
+                    }
+                    double gain = removalGain + distances.distance(c, other) - addedEdge
+                            - distances.distance(otherEnd, other);
+                    if (gain > epsilon) {
+                        // the two cities the segment will be inserted between, in tour order
+                        int left = side == 0 ? c : other;
+                        int right = side == 0 ? other : c;
+                        // whether the segment keeps its orientation, i.e. s1 is next to left
+                        boolean keepOrientation = (side == 0) == (endCity == s1);
+                        moveSegment(firstPosition, length, left, right, keepOrientation);
+                        wake(p);
+                        wake(nx);
+                        wake(s1);
+                        wake(s2);
+                        wake(left);
+                        wake(right);
+                        return gain;
+                    }
+                }
+            }
+        }
+        return 0.0;
+    }
+
+    // method which returns whether a city lies in the segment of the given length starting at firstPosition
+    private boolean isInSegment(int city, int firstPosition, int length) {
+        return (position[city] - firstPosition + n) % n < length;
+    }
+
+    // method which moves the segment of the given length starting at firstPosition between the consecutive cities
+    // left and right, reversing it if keepOrientation is false.
+    // the segment is rotated past the shorter of the two stretches of the tour lying between it and its destination
+    private void moveSegment(int firstPosition, int length, int left, int right, boolean keepOrientation) {
+        int lastPosition = (firstPosition + length - 1) % n;
+        // the stretch from the city after the segment up to left
+        int forwardStart = (lastPosition + 1) % n;
+        int forwardLength = (position[left] - forwardStart + n) % n + 1;
+        // the stretch from right up to the city before the segment
+        int backwardStart = position[right];
+        int backwardLength = (firstPosition - backwardStart + n) % n;
+
+        if (forwardLength <= backwardLength) {
+            // segment X followed by stretch Y becomes Y followed by X
+            int forwardEnd = position[left];
+            if (keepOrientation) {
+                reverseInPlace(firstPosition, lastPosition);
+            }
+            reverseInPlace(forwardStart, forwardEnd);
+            reverseInPlace(firstPosition, forwardEnd);
+        } else {
+            // stretch Y followed by segment X becomes X followed by Y
+            int backwardEnd = (firstPosition - 1 + n) % n;
+            reverseInPlace(backwardStart, backwardEnd);
+            if (keepOrientation) {
+                reverseInPlace(firstPosition, lastPosition);
+            }
+            reverseInPlace(backwardStart, lastPosition);
+        }
+    }
+
+    // method which reverses the part of the tour going forwards from position i to position j. Since reversing the
+    // rest of the tour instead gives the same cycle, whichever of the two is shorter is reversed
+    private void reverse(int i, int j) {
+        int length = (j - i + n) % n + 1;
+        if (2 * length > n) {
+            reverseInPlace((j + 1) % n, (i - 1 + n) % n);
+        } else {
+            reverseInPlace(i, j);
+        }
+    }
+
+    // method which reverses exactly the part of the tour going forwards from position i to position j
+    private void reverseInPlace(int i, int j) {
+        int swaps = ((j - i + n) % n + 1) / 2;
+        for (int k = 0; k < swaps; k++) {
+            int cityI = tour[i];
+            int cityJ = tour[j];
+            tour[i] = cityJ;
+            position[cityJ] = i;
+            tour[j] = cityI;
+            position[cityI] = j;
+            i = (i + 1 == n) ? 0 : i + 1;
+            j = (j == 0) ? n - 1 : j - 1;
+        }
+    }
+
+    private int next(int city) {
+        int i = position[city] + 1;
+        return tour[i == n ? 0 : i];
+    }
+
+    private int previous(int city) {
+        int i = position[city];
+        return tour[i == 0 ? n - 1 : i - 1];
+    }
+
+    // method which clears the don't look bit of a city, adding it to the queue if it is not already there
+    private void wake(int city) {
+        if (dontLook[city]) {
+            dontLook[city] = false;
+            queue[(queueHead + queueSize) % n] = city;
+            queueSize++;
+        }
+    }
+}
@@ -8,7 +8,9 @@ public class Location {
     }
 
     public static double distance(Location a, Location b) {
-        return Math.sqrt(  Math.pow((a.x - b.x), 2) + Math.pow((a.y - b.y), 2)  );
+        double dx = a.x - b.x;
+        double dy = a.y - b.y;
+        return Math.sqrt(dx * dx + dy * dy);
     }
 
     @Override
@@ -1,4 +1,5 @@
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 
 public class Main {
@@ -10,23 +11,37 @@ public class Main {
 
         // iterating through all the TSP Instances in the directory
         for (File tspInstance : directoryListing) {
-            // ArrayList of cities (City) which is initialised by the readInput method
-            ArrayList<City> cities = InputReader.readInput(tspInstance.getAbsolutePath());
-            //printCities(cities);
+            // read the instance, skipping any file which is not a valid TSPLIB instance
+            TSPInstance instance;
+            try {
+                instance = InputReader.readInstance(tspInstance.getAbsolutePath());
+            } catch (IOException e) {
+                System.out.println("Skipping " + tspInstance + ": " + e.getMessage());
+                System.out.println();
+                continue;
+            }
+            // build the distances between every pair of cities once, and share them between both algorithms
+            DistanceProvider distances = DistanceProviders.create(instance);
+            System.out.println("Distances: " + tspInstance + "\t" + DistanceProviders.report(distances));
 
             System.out.print("GA:  " + tspInstance + "\t");
-            // call the genetic algorithm path finder with the arraylist of cities
-            long GAstartTime = System.nanoTime();
-            GeneticAlgorithm.GA(cities);
-            long GAendTime = System.nanoTime();
-            System.out.println("Time taken by GA:  " + (int)((GAendTime-GAstartTime)/1000000) + "ms");
+            // call the genetic algorithm path finder with the instance (as an island model if -Dtsp.islands is given,
+            // and looking the result up in the ResultCache first if -Dtsp.cacheDir is given)
+            Solver ga = CachingSolver.configured(
+                    System.getProperty("tsp.islands") != null ? new IslandModel() : new GeneticAlgorithm(), "");
+            TourResult fittestChromosome = ga.solve(instance, distances);
+            // display the path and distance of the fittest chromosome
+            System.out.println(fittestChromosome.getPath());
+            System.out.println("Total Route Distance: " + fittestChromosome.length);
+            System.out.println("Time taken by GA:  " + fittestChromosome.timeMillis + "ms");
 
             System.out.print("ACO: " + tspInstance + "\t");
-            // call the ant colony optimisation path finder with with the arraylist of cities
-            long ACOstartTime = System.nanoTime();
-            AntColonyOptimisation.ACO(cities);
-            long ACOendTime = System.nanoTime();
-            System.out.println("Time taken by ACO: " + (int)((ACOendTime-ACOstartTime)/1000000) + "ms");
+            // call the ant colony optimisation path finder with the instance
+            TourResult bestAnt = CachingSolver.configured(new AntColonyOptimisation(), "").solve(instance, distances);
+            // display the path and distance of the best ant
+            System.out.println(bestAnt.getPath());
+            System.out.println("Total Route Distance: " + bestAnt.length);
+            System.out.println("Time taken by ACO: " + bestAnt.timeMillis + "ms");
 
             // print a new line to separate instances from one another
             System.out.println();
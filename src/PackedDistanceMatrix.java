@@ -0,0 +1,41 @@
+// Distance store which keeps the exact (double precision) distances of the upper triangle in one flat array.
+// This halves the memory of a full double[n][n] matrix while returning exactly the same values.
+public class PackedDistanceMatrix extends PackedTriangularMatrix {
+
+    // the distances of the upper triangle, row by row
+    private final double[] distances;
+
+    public PackedDistanceMatrix(TSPInstance instance) {
+        super(instance.dimension);
+        distances = new double[(int) entries(n)];
+        fill(instance);
+    }
+
+    // method which returns how many bytes this store would need for n cities
+    public static long bytesRequired(int n) {
+        return entries(n) * Double.BYTES;
+    }
+
+    @Override
+    protected void store(int index, double distance) {
+        distances[index] = distance;
+    }
+
+    @Override
+    public double distance(int a, int b) {
+        if (a == b) {
+            return 0.0;
+        }
+        return distances[index(a, b)];
+    }
+
+    @Override
+    public long memoryFootprint() {
+        return bytesRequired(n);
+    }
+
+    @Override
+    public String description() {
+        return "packed double upper-triangular";
+    }
+}
@@ -0,0 +1,73 @@
+// Base class of the distance stores which only keep the upper triangle of the distance matrix (without the diagonal)
+// in one flat array. Since this is a Symmetric TSP, distance(i, j) == distance(j, i) and distance(i, i) == 0,
+// so this stores n(n-1)/2 values instead of the n*n values of a full double[n][n].
+public abstract class PackedTriangularMatrix implements DistanceProvider {
+
+    // the number of cities
+    protected final int n;
+
+    protected PackedTriangularMatrix(int n) {
+        this.n = n;
+    }
+
+    // method which returns how many values need to be stored for n cities
+    public static long entries(int n) {
+        return (long) n * (n - 1) / 2;
+    }
+
+    // method which returns whether the packed array for n cities fits inside a single Java array
+    public static boolean fitsInArray(int n) {
+        return entries(n) <= Integer.MAX_VALUE - 8;
+    }
+
+    // method which returns the position of the distance between cities a and b inside the packed array.
+    // a and b must not be equal
+    protected final int index(int a, int b) {
+        return index(n, a, b);
+    }
+
+    // method which returns the position of the value of the pair (a, b) inside a packed upper triangle of n cities.
+    // this is also used by the other symmetric per-edge stores (e.g. the pheromone levels of the ACO)
+    public static int index(int n, int a, int b) {
+        // always index using the smaller city as the row
+        if (a > b) {
+            int temp = a;
+            a = b;
+            b = temp;
+        }
+        // row a starts with column a+1
+        return rowStart(n, a) + (b - a - 1);
+    }
+
+    // method which returns the position of the first value of row a inside the packed array.
+    // the rows before row a take up a*(2n-a-1)/2 values
+    protected final int rowStart(int a) {
+        return rowStart(n, a);
+    }
+
+    private static int rowStart(int n, int a) {
+        return (int) ((long) a * (2 * n - a - 1) / 2);
+    }
+
+    // method which fills the packed array by calling store() once for every pair of cities. The distances of each row
+    // are calculated together by the instance's DistanceKernel
+    protected final void fill(TSPInstance instance) {
+        DistanceKernel kernel = DistanceKernel.create(instance);
+        double[] row = new double[n];
+        for (int i = 0; i < n; i++) {
+            int rowStart = rowStart(i);
+            kernel.row(i, i + 1, n, row, 0);
+            for (int j = i + 1; j < n; j++) {
+                store(rowStart + (j - i - 1), row[j - i - 1]);
+            }
+        }
+    }
+
+    // method which stores one distance at the given position of the packed array
+    protected abstract void store(int index, double distance);
+
+    @Override
+    public int size() {
+        return n;
+    }
+}
@@ -0,0 +1,88 @@
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+// The pheromone level of every edge, kept as a packed upper triangle (the levels are symmetric, so each edge is stored
+// only once). Since several ants build their tours at the same time and each of them performs local pheromone updates,
+// every update is an atomic compare-and-set on the single value of the edge, so no update is ever lost.
+public class PheromoneMatrix implements PheromoneStore {
+
+    // handle used to read and atomically update single elements of the levels array
+    private static final VarHandle LEVEL = MethodHandles.arrayElementVarHandle(double[].class);
+
+    // the number of cities
+    private final int n;
+    // the pheromone levels of the upper triangle, row by row
+    private final double[] levels;
+    // the rate at which pheromone evaporates whenever an edge is updated
+    private final double evaporationRate;
+
+    public PheromoneMatrix(int n, double initialLevel, double evaporationRate) {
+        this.n = n;
+        this.levels = new double[(int) PackedTriangularMatrix.entries(n)];
+        this.evaporationRate = evaporationRate;
+        Arrays.fill(levels, initialLevel);
+    }
+
+    @Override
+    public double get(int a, int b) {
+        if (a == b) {
+            return 0.0;
+        }
+        return (double) LEVEL.getOpaque(levels, PackedTriangularMatrix.index(n, a, b));
+    }
+
+    // both the local (deposit = tau_0) and the global (deposit = 1/L_best) pheromone updates of ACS take this form.
+    // the update is retried until no other ant changed the level in the meantime
+    @Override
+    public double update(int a, int b, double deposit) {
+        // a tour of a single city closes on itself, over an edge which has no level
+        if (a == b) {
+            return 0.0;
+        }
+        int index = PackedTriangularMatrix.index(n, a, b);
+        double level;
+        double updatedLevel;
+        do {
+            level = (double) LEVEL.getVolatile(levels, index);
+            updatedLevel = (1.0 - evaporationRate) * level + evaporationRate * deposit;
+        } while (!LEVEL.compareAndSet(levels, index, level, updatedLevel));
+        return updatedLevel;
+    }
+
+    // every edge already has a level of its own
+    @Override
+    public void keepTour(int[] path, int pathSize) {
+    }
+
+    @Override
+    public long memoryFootprint() {
+        return (long) levels.length * Double.BYTES;
+    }
+
+    // the levels are written as a marker (0 for the dense matrix), the number of levels and the packed upper triangle
+    @Override
+    public long checkpointBytes() {
+        return Integer.BYTES + Long.BYTES + memoryFootprint();
+    }
+
+    @Override
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(0).putLong(levels.length);
+        buffer.asDoubleBuffer().put(levels);
+        buffer.position((int) (buffer.position() + (long) levels.length * Double.BYTES));
+    }
+
+    @Override
+    public void readFrom(ByteBuffer buffer) {
+        if (buffer.getInt() != 0 || buffer.getLong() != levels.length) {
+            throw new IllegalStateException("the checkpoint was not written by a dense pheromone matrix of this size "
+                    + "(see -Dtsp.pheromoneStore)");
+        }
+        DoubleBuffer saved = buffer.asDoubleBuffer();
+        saved.get(levels);
+        buffer.position((int) (buffer.position() + (long) levels.length * Double.BYTES));
+    }
+}
@@ -0,0 +1,62 @@
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+// The pheromone level of every edge used by the ACO. The levels are symmetric, so the level of (a, b) is the level
+// of (b, a). Several ants update the levels at the same time, so every update must be atomic.
+// Two stores are available: the dense PheromoneMatrix, which keeps a level for every one of the n(n-1)/2 edges, and the
+// SparsePheromoneStore, which only keeps the levels of the candidate edges and of the edges of the best tour, and so
+// takes O(n*k) memory instead of O(n^2). The store can be chosen from the command line:
+//   -Dtsp.pheromoneStore=auto|dense|sparse   (default: auto, which uses the dense matrix when it takes up no more
+//                                             than an eighth of the maximum heap size, and the sparse store otherwise)
+public interface PheromoneStore {
+
+    // method which returns the pheromone level on the edge between city a and city b
+    double get(int a, int b);
+
+    // method which evaporates part of the pheromone on the edge between city a and city b and deposits new pheromone:
+    // level = (1-alpha)*level + alpha*deposit
+    // and returns the updated level
+    double update(int a, int b, double deposit);
+
+    // method which makes sure that every edge of the tour has a pheromone level of its own, so that the pheromone
+    // deposited on the tour is kept. Must not be called while ants are building their tours
+    void keepTour(int[] path, int pathSize);
+
+    // method which returns the number of bytes taken up by the pheromone levels
+    long memoryFootprint();
+
+    // method which returns the number of bytes the levels take up in a checkpoint (see Checkpoint)
+    long checkpointBytes();
+
+    // methods which write the levels to a checkpoint, and read them back into a store of the same kind built for the
+    // same instance. Must not be called while ants are building their tours
+    void writeTo(ByteBuffer buffer);
+    void readFrom(ByteBuffer buffer);
+
+    // method which builds the store chosen on the command line for the given candidate lists of n cities
+    static PheromoneStore create(int[][] candidateLists, double initialLevel, double evaporationRate) {
+        return isDense(candidateLists.length) ? new PheromoneMatrix(candidateLists.length, initialLevel, evaporationRate)
+                : new SparsePheromoneStore(candidateLists, initialLevel, evaporationRate);
+    }
+
+    // method which returns whether the store chosen on the command line for n cities is the dense matrix
+    static boolean isDense(int n) {
+        String store = System.getProperty("tsp.pheromoneStore", "auto").trim().toLowerCase(Locale.ROOT);
+        boolean dense;
+        switch (store) {
+            case "dense":
+                dense = true;
+                break;
+            case "sparse":
+                dense = false;
+                break;
+            case "auto":
+                dense = PackedTriangularMatrix.fitsInArray(n)
+                        && PackedTriangularMatrix.entries(n) * Double.BYTES <= Runtime.getRuntime().maxMemory() / 8;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown pheromone store: " + store);
+        }
+        return dense;
+    }
+}
@@ -0,0 +1,194 @@
+import java.util.Arrays;
+
+// The chromosomes of a GA population stored as a structure of arrays rather than as Chromosome objects: the paths
+// of all the chromosomes one after the other in a single int[] (the path of chromosome i starts at i * pathLength),
+// and their lengths and fingerprints (see TourHash) in a double[] and a long[]. The arrays are allocated once for
+// the largest number of chromosomes the population will hold, and the operators of the GA work on them in place,
+// so evolving a generation does not allocate an object or an array per chromosome.
+// A Population can also refuse the tours it already holds (see addDistinct and contains) in O(1), using a small hash
+// table of the fingerprints of its chromosomes, which addDistinct and set keep up to date. The operators which change
+// the paths in place (crossover, mutation and local search) only work on children, which are never searched; a
+// population whose arrays are written directly must be reindexed before it is searched
+public class Population {
+
+    // the number of cities in every path, and the largest number of chromosomes the population can hold
+    final int pathLength;
+    final int capacity;
+    // the paths, lengths and fingerprints of the chromosomes
+    final int[] tours;
+    final double[] lengths;
+    final long[] hashes;
+    // the number of chromosomes the population holds
+    int size;
+    // open addressing table of the chromosomes of the population: the position of a chromosome plus one, at the first
+    // free slot from its fingerprint (0 for an empty slot). It holds at most half as many chromosomes as slots
+    private final int[] index;
+
+    public Population(int capacity, int pathLength) {
+        this.pathLength = pathLength;
+        this.capacity = capacity;
+        this.tours = new int[capacity * pathLength];
+        this.lengths = new double[capacity];
+        this.hashes = new long[capacity];
+        this.index = new int[Integer.highestOneBit(Math.max(1, capacity)) * 4];
+    }
+
+    // method which returns where the path of the chromosome at the given position starts in tours
+    int offset(int i) {
+        return i * pathLength;
+    }
+
+    // method which empties the population
+    void clear() {
+        size = 0;
+        Arrays.fill(index, 0);
+    }
+
+    // method which replaces the chromosome at the given position (below size) by a copy of the given path, with its
+    // length and fingerprint
+    void set(int i, int[] path, int offset, double length, long hash) {
+        unindex(i);
+        write(i, path, offset, length, hash);
+        int mask = index.length - 1;
+        int slot = (int) hash & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = i + 1;
+    }
+
+    // method which adds a copy of the given path to the population, unless it is the same tour as one of its
+    // chromosomes. Returns whether it was added
+    boolean addDistinct(int[] path, int offset, double length, long hash) {
+        int slot = find(path, offset, hash);
+        if (index[slot] != 0) {
+            return false;
+        }
+        write(size, path, offset, length, hash);
+        index[slot] = ++size;
+        return true;
+    }
+
+    // method which returns whether any chromosome of the population is the same tour as the given path
+    boolean contains(int[] path, int offset, long hash) {
+        return index[find(path, offset, hash)] != 0;
+    }
+
+    // method which builds the index again from every chromosome, after their arrays were written directly
+    void reindex() {
+        Arrays.fill(index, 0);
+        int mask = index.length - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = (int) hashes[i] & mask;
+            while (index[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            index[slot] = i + 1;
+        }
+    }
+
+    private void write(int i, int[] path, int offset, double length, long hash) {
+        System.arraycopy(path, offset, tours, offset(i), pathLength);
+        lengths[i] = length;
+        hashes[i] = hash;
+    }
+
+    // method which returns the slot of the index holding a chromosome which is the same tour as the given path, or
+    // the empty slot at which the path would be added
+    private int find(int[] path, int offset, long hash) {
+        int mask = index.length - 1;
+        int slot = (int) hash & mask;
+        while (index[slot] != 0) {
+            int other = index[slot] - 1;
+            if (hashes[other] == hash && TourHash.sameTour(tours, offset(other), path, offset, pathLength)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // method which removes the chromosome at the given position from the index, if it is in it. The chromosomes
+    // after it in the same run of slots are moved back into the gap (unless that would put them before the slot of
+    // their fingerprint), so that every chromosome can still be found from the slot of its fingerprint
+    private void unindex(int i) {
+        int mask = index.length - 1;
+        int gap = (int) hashes[i] & mask;
+        while (index[gap] != i + 1) {
+            if (index[gap] == 0) {
+                return;
+            }
+            gap = (gap + 1) & mask;
+        }
+        for (int next = (gap + 1) & mask; index[next] != 0; next = (next + 1) & mask) {
+            int home = (int) hashes[index[next] - 1] & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                index[gap] = index[next];
+                gap = next;
+            }
+        }
+        index[gap] = 0;
+    }
+
+    // method which returns the position of the shortest chromosome
+    int fittest() {
+        int fittest = 0;
+        for (int i = 1; i < size; i++) {
+            if (lengths[i] < lengths[fittest]) {
+                fittest = i;
+            }
+        }
+        return fittest;
+    }
+
+    // method which returns the position of the longest chromosome
+    int leastFit() {
+        int leastFit = 0;
+        for (int i = 1; i < size; i++) {
+            if (lengths[i] > lengths[leastFit]) {
+                leastFit = i;
+            }
+        }
+        return leastFit;
+    }
+
+    // method which returns a copy of the chromosome at the given position as a Chromosome object
+    Chromosome chromosome(int i) {
+        Chromosome chromosome = new Chromosome(0);
+        chromosome.path = Arrays.copyOfRange(tours, offset(i), offset(i) + pathLength);
+        chromosome.setLength(lengths[i]);
+        return chromosome;
+    }
+
+    // method which fills order with the positions of the chromosomes from the shortest to the longest,
+    // using scratch (which must be as long as order) for the merge sort
+    void sortByLength(int[] order, int[] scratch) {
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        // bottom-up merge sort of the positions by length, which is stable and does not allocate
+        int[] from = order;
+        int[] to = scratch;
+        for (int width = 1; width < size; width *= 2) {
+            for (int low = 0; low < size; low += 2 * width) {
+                int middle = Math.min(low + width, size);
+                int high = Math.min(low + 2 * width, size);
+                int left = low;
+                int right = middle;
+                for (int k = low; k < high; k++) {
+                    if (left < middle && (right >= high || lengths[from[left]] <= lengths[from[right]])) {
+                        to[k] = from[left++];
+                    } else {
+                        to[k] = from[right++];
+                    }
+                }
+            }
+            int[] temp = from;
+            from = to;
+            to = temp;
+        }
+        if (from != order) {
+            System.arraycopy(from, 0, order, 0, size);
+        }
+    }
+}
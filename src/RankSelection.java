@@ -0,0 +1,29 @@
+import java.util.Random;
+
+// Rank-Based Roulette Wheel Selection: in a population of n chromosomes, the chromosome of rank r (0 for the fittest)
+// is selected with probability (n - r) / (1 + 2 + ... + n). Since the probabilities only depend on the size of the
+// population, the alias table is only built again when the size changes, and every parent is selected in O(1)
+public class RankSelection implements Selection {
+
+    private final AliasTable table = new AliasTable();
+    private double[] ranks = new double[0];
+
+    @Override
+    public void prepare(double[] lengths, int populationSize) {
+        if (table.size() == populationSize) {
+            return;
+        }
+        if (ranks.length < populationSize) {
+            ranks = new double[populationSize];
+        }
+        for (int i = 0; i < populationSize; i++) {
+            ranks[i] = populationSize - i;
+        }
+        table.build(ranks, populationSize);
+    }
+
+    @Override
+    public int select(Random random) {
+        return table.sample(random);
+    }
+}
@@ -0,0 +1,495 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+// Cache of the results of earlier runs, kept on disk so that it is shared by every run in the JVM and outlives it.
+// A result is stored under a key which is the SHA-256 hash of the instance as it was parsed (its edge weight type and
+// its coordinates or explicit weights, but not its name) and of the solver and its parameters (the name of the
+// solver, the settings given by the caller, the distance backend and pheromone store it uses, and every tsp.* system
+// property which can change the tours a run finds), so solving the same instance with the same settings again
+// returns the stored result (see CachingSolver).
+// An instance which is not in the cache may still share most of its cities with one which is: every stored result
+// also holds a fingerprint of each of its cities and a MinHash signature of the set of them, from which the stored
+// instance most similar to a new one is found without reading the other files. If it shares at least a given
+// fraction of the new instance's cities, its tour is turned into a tour of the new instance (the cities which are
+// not in the new instance are left out, and the new ones are inserted where they lengthen the tour the least), which
+// the solver then starts from (see Solver.warmStart).
+// The files are kept in the least recently used order by their modification times, and the least recently used
+// results are deleted once the files take up more than the maximum size. The cache is off unless a directory is
+// given on the command line:
+//   -Dtsp.cacheDir=<directory>           (one file per result, named after its key)
+//   -Dtsp.cacheMaxMB=<MB>                (default: 256)
+//   -Dtsp.cacheMinOverlap=<fraction>     (default: 0.8, the fraction of the cities of an instance a stored instance
+//                                         must share for its tour to warm-start a run; above 1 turns this off)
+public class ResultCache {
+
+    // the header of every file: "TSPR" and the version of the format
+    private static final int MAGIC = 0x54535052;
+    private static final int VERSION = 1;
+    // the number of hash functions of a MinHash signature, which estimates the similarity of two sets of cities to
+    // within about 1/sqrt(64) = 0.125
+    private static final int SIGNATURE_SIZE = 64;
+    // the system properties which do not change the tours a run finds, only where its output goes or how fast it
+    // runs, and which are therefore left out of the keys. The distance backend does change them (a float store rounds
+    // the distances), and so does the pheromone store of the ACO (the sparse store keeps most edges at the default
+    // level), so the backend and the store a run uses are part of the key, but the distance kernel only changes the
+    // speed
+    private static final String[] IGNORED_PROPERTIES = {"tsp.cache", "tsp.telemetry", "tsp.checkpoint", "tsp.resume",
+            "tsp.server", "tsp.batch", "tsp.distanceKernel", "tsp.gaThreads", "tsp.acoThreads"};
+
+    // the cache given on the command line, created the first time it is needed
+    private static ResultCache configured;
+    private static boolean configuredRead;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final double minOverlap;
+    // every stored result by key, from the least recently used to the most recently used, and the size of their files
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public ResultCache(Path directory, long maxBytes, double minOverlap) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.minOverlap = minOverlap;
+        Files.createDirectories(directory);
+        load();
+    }
+
+    // method which returns the cache given on the command line, or null if there is none
+    public static synchronized ResultCache configured() {
+        if (!configuredRead) {
+            configuredRead = true;
+            String dir = System.getProperty("tsp.cacheDir");
+            if (dir != null) {
+                try {
+                    configured = new ResultCache(Paths.get(dir), Long.getLong("tsp.cacheMaxMB", 256) * 1024 * 1024,
+                            Double.parseDouble(System.getProperty("tsp.cacheMinOverlap", "0.8")));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("cannot keep a result cache in " + dir, e);
+                }
+            }
+        }
+        return configured;
+    }
+
+    // method which returns the key of the results of the given solver with the given parameters on the instance
+    public String key(TSPInstance instance, String solver, String parameters) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has SHA-256
+            throw new IllegalStateException(e);
+        }
+        digest.update((instance.edgeWeightType + " " + instance.dimension + "\n").getBytes(StandardCharsets.UTF_8));
+        if (instance.hasCoordinates()) {
+            update(digest, instance.x);
+            update(digest, instance.y);
+        }
+        if (instance.weights != null) {
+            update(digest, instance.weights);
+        }
+        StringBuilder settings = new StringBuilder(solver).append('\n').append(parameters).append('\n')
+                .append(DistanceProviders.configuredBackend(instance)).append('\n')
+                .append(PheromoneStore.isDense(instance.dimension) ? "dense" : "sparse").append('\n');
+        for (Map.Entry<String, String> property : solverProperties().entrySet()) {
+            settings.append(property.getKey()).append('=').append(property.getValue()).append('\n');
+        }
+        byte[] hash = digest.digest(settings.toString().getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder key = new StringBuilder(2 * hash.length);
+        for (byte b : hash) {
+            key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return key.toString();
+    }
+
+    // method which returns the result stored under the key (whose instance is the one it was run on), or null if
+    // there is none
+    public synchronized TourResult get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        try (DataInputStream input = open(entry)) {
+            readHeader(input);
+            TourResult result = readResult(input, entry.dimension);
+            Files.setLastModifiedTime(file(key), FileTime.fromMillis(System.currentTimeMillis()));
+            return result;
+        } catch (IOException e) {
+            // the file was deleted or damaged, so the result is forgotten
+            forget(key);
+            return null;
+        }
+    }
+
+    // method which stores the result of a run on the instance under the key, and deletes the least recently used
+    // results if the cache has become too large
+    public synchronized void put(String key, TSPInstance instance, TourResult result) {
+        long[] fingerprints = instance.hasCoordinates() ? fingerprints(instance) : null;
+        Path file = file(key);
+        Path temporary = directory.resolve(key + ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeInt(instance.edgeWeightType.ordinal());
+                output.writeInt(instance.dimension);
+                output.writeBoolean(fingerprints != null);
+                if (fingerprints != null) {
+                    for (long value : signature(fingerprints)) {
+                        output.writeLong(value);
+                    }
+                }
+                output.writeUTF(result.solver);
+                output.writeDouble(result.length);
+                output.writeInt(result.steps);
+                output.writeLong(result.evaluations);
+                output.writeUTF(result.stopReason.name());
+                output.writeLong(result.timeMillis);
+                for (int city : result.tour) {
+                    output.writeInt(city);
+                }
+                if (fingerprints != null) {
+                    for (long fingerprint : fingerprints) {
+                        output.writeLong(fingerprint);
+                    }
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Entry replaced = entries.remove(key);
+            if (replaced != null) {
+                totalBytes -= replaced.bytes;
+            }
+            add(key, readEntry(file));
+        } catch (IOException e) {
+            // a result which cannot be stored is only a missed chance to skip a run
+            System.out.println("Cannot store the result in the cache: " + e.getMessage());
+            return;
+        }
+        evict();
+    }
+
+    // method which returns a tour of the instance made from the tour of the stored instance which is most similar
+    // to it, or null if no stored instance shares enough of its cities. Only the search of the signatures holds the
+    // lock of the cache; the file is read and its tour mapped outside it, so other runs are not held up meanwhile
+    public int[] warmStartTour(TSPInstance instance, DistanceProvider distances) {
+        if (!instance.hasCoordinates() || minOverlap > 1) {
+            return null;
+        }
+        long[] fingerprints = fingerprints(instance);
+        long[] signature = signature(fingerprints);
+
+        String closest = null;
+        Entry entry = null;
+        synchronized (this) {
+            // the stored instance whose signature agrees with the most hash functions
+            int mostAgreements = 0;
+            for (Map.Entry<String, Entry> stored : entries.entrySet()) {
+                Entry candidate = stored.getValue();
+                if (candidate.signature == null || candidate.edgeWeightType != instance.edgeWeightType.ordinal()) {
+                    continue;
+                }
+                int agreements = 0;
+                for (int i = 0; i < SIGNATURE_SIZE; i++) {
+                    if (candidate.signature[i] == signature[i]) {
+                        agreements++;
+                    }
+                }
+                if (agreements > mostAgreements) {
+                    mostAgreements = agreements;
+                    closest = stored.getKey();
+                    entry = candidate;
+                }
+            }
+        }
+        if (closest == null) {
+            return null;
+        }
+
+        int[] storedTour;
+        long[] storedFingerprints = new long[entry.dimension];
+        try (DataInputStream input = open(entry)) {
+            readHeader(input);
+            storedTour = readResult(input, entry.dimension).tour;
+            for (int i = 0; i < entry.dimension; i++) {
+                storedFingerprints[i] = input.readLong();
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                // unless the result was evicted or stored again in the meantime, its file is damaged
+                if (entries.get(closest) == entry) {
+                    forget(closest);
+                }
+            }
+            return null;
+        }
+        return mapTour(storedTour, storedFingerprints, fingerprints, distances);
+    }
+
+    // method which turns the tour of a stored instance into a tour of the new instance, or returns null if they share
+    // fewer than minOverlap of the new instance's cities. Cities with the same coordinates are the same city
+    private int[] mapTour(int[] storedTour, long[] storedFingerprints, long[] fingerprints, DistanceProvider distances) {
+        int n = fingerprints.length;
+        // the first city of the new instance with every fingerprint, and the next city with the same fingerprint
+        Map<Long, Integer> firstCity = new HashMap<>(2 * n);
+        int[] nextCity = new int[n];
+        for (int city = n - 1; city >= 0; city--) {
+            Integer next = firstCity.put(fingerprints[city], city);
+            nextCity[city] = next == null ? -1 : next;
+        }
+
+        // the cities of the stored tour which are in the new instance, in the order of the stored tour
+        int[] tour = new int[n];
+        int size = 0;
+        boolean[] placed = new boolean[n];
+        for (int storedCity : storedTour) {
+            Integer first = firstCity.get(storedFingerprints[storedCity]);
+            int city = first == null ? -1 : first;
+            while (city != -1 && placed[city]) {
+                city = nextCity[city];
+            }
+            if (city != -1) {
+                placed[city] = true;
+                tour[size++] = city;
+            }
+        }
+        if (size == 0 || size < minOverlap * n) {
+            return null;
+        }
+
+        // cheapest insertion of the cities which are not in the stored tour
+        for (int city = 0; city < n; city++) {
+            if (placed[city]) {
+                continue;
+            }
+            int bestPosition = 0;
+            double bestIncrease = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < size; i++) {
+                int a = tour[i];
+                int b = tour[i + 1 == size ? 0 : i + 1];
+                double increase = distances.distance(a, city) + distances.distance(city, b) - distances.distance(a, b);
+                if (increase < bestIncrease) {
+                    bestIncrease = increase;
+                    bestPosition = i + 1;
+                }
+            }
+            System.arraycopy(tour, bestPosition, tour, bestPosition + 1, size - bestPosition);
+            tour[bestPosition] = city;
+            size++;
+        }
+        return tour;
+    }
+
+    // method which reads the header of every file in the directory, from the least recently used to the most
+    // recently used, and deletes the least recently used results if there are too many
+    private void load() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> listing = Files.newDirectoryStream(directory, "*.result")) {
+            for (Path file : listing) {
+                files.add(file);
+            }
+        }
+        Map<Path, Long> modified = new HashMap<>();
+        for (Path file : files) {
+            modified.put(file, Files.getLastModifiedTime(file).toMillis());
+        }
+        files.sort(Comparator.comparingLong(modified::get));
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            try {
+                add(name.substring(0, name.length() - ".result".length()), readEntry(file));
+            } catch (IOException e) {
+                // a damaged file, or one from another version of the program, is never used
+                Files.deleteIfExists(file);
+            }
+        }
+        evict();
+    }
+
+    private void add(String key, Entry entry) {
+        entries.put(key, entry);
+        totalBytes += entry.bytes;
+    }
+
+    private void forget(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            totalBytes -= entry.bytes;
+            try {
+                Files.deleteIfExists(file(key));
+            } catch (IOException e) {
+                // the file stays on disk until it is next loaded
+            }
+        }
+    }
+
+    // method which deletes the least recently used results until the files fit in the maximum size, always keeping
+    // the most recent result
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> leastRecentlyUsed = entries.entrySet().iterator();
+        List<String> evicted = new ArrayList<>();
+        long bytes = totalBytes;
+        while (bytes > maxBytes && entries.size() - evicted.size() > 1 && leastRecentlyUsed.hasNext()) {
+            Map.Entry<String, Entry> stored = leastRecentlyUsed.next();
+            evicted.add(stored.getKey());
+            bytes -= stored.getValue().bytes;
+        }
+        for (String key : evicted) {
+            forget(key);
+        }
+    }
+
+    private Path file(String key) {
+        return directory.resolve(key + ".result");
+    }
+
+    private DataInputStream open(Entry entry) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(entry.file)));
+    }
+
+    // method which reads the header of a file, up to the start of its result
+    private Entry readEntry(Path file) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            Entry entry = readHeader(input);
+            return new Entry(file, Files.size(file), entry.edgeWeightType, entry.dimension, entry.signature);
+        }
+    }
+
+    private static Entry readHeader(DataInputStream input) throws IOException {
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+            throw new IOException("not a result of this version of the program");
+        }
+        int edgeWeightType = input.readInt();
+        int dimension = input.readInt();
+        long[] signature = null;
+        if (input.readBoolean()) {
+            signature = new long[SIGNATURE_SIZE];
+            for (int i = 0; i < SIGNATURE_SIZE; i++) {
+                signature[i] = input.readLong();
+            }
+        }
+        return new Entry(null, 0, edgeWeightType, dimension, signature);
+    }
+
+    private static TourResult readResult(DataInputStream input, int dimension) throws IOException {
+        String solver = input.readUTF();
+        double length = input.readDouble();
+        int steps = input.readInt();
+        long evaluations = input.readLong();
+        TerminationPolicy.Reason reason;
+        try {
+            reason = TerminationPolicy.Reason.valueOf(input.readUTF());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("unknown stop reason", e);
+        }
+        long timeMillis = input.readLong();
+        int[] tour = new int[dimension];
+        for (int i = 0; i < dimension; i++) {
+            tour[i] = input.readInt();
+        }
+        return new TourResult(solver, "", tour, length, steps, evaluations, reason, timeMillis);
+    }
+
+    // method which returns a fingerprint of the coordinates of every city of the instance
+    private static long[] fingerprints(TSPInstance instance) {
+        long[] fingerprints = new long[instance.dimension];
+        for (int i = 0; i < instance.dimension; i++) {
+            // adding 0.0 turns -0.0 into 0.0, which is the same coordinate
+            long x = Double.doubleToLongBits(instance.x[i] + 0.0);
+            long y = Double.doubleToLongBits(instance.y[i] + 0.0);
+            fingerprints[i] = TourHash.mix(TourHash.mix(x) ^ y);
+        }
+        return fingerprints;
+    }
+
+    // method which returns the MinHash signature of a set of cities: for each of the hash functions, the smallest
+    // hash of any of the cities. Two sets agree on a hash function with a probability equal to the fraction of their
+    // cities which they share (out of all the cities in either)
+    private static long[] signature(long[] fingerprints) {
+        long[] signature = new long[SIGNATURE_SIZE];
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            long seed = TourHash.mix(i + 1);
+            long min = Long.MAX_VALUE;
+            for (long fingerprint : fingerprints) {
+                min = Math.min(min, TourHash.mix(fingerprint ^ seed));
+            }
+            signature[i] = min;
+        }
+        return signature;
+    }
+
+    // method which returns the tsp.* system properties which can change the tours a run finds, in order of name
+    private static Map<String, String> solverProperties() {
+        Map<String, String> properties = new TreeMap<>();
+        Properties system = System.getProperties();
+        for (String name : system.stringPropertyNames()) {
+            if (!name.startsWith("tsp.")) {
+                continue;
+            }
+            boolean ignored = false;
+            for (String prefix : IGNORED_PROPERTIES) {
+                ignored |= name.startsWith(prefix);
+            }
+            if (!ignored) {
+                properties.put(name, system.getProperty(name));
+            }
+        }
+        return properties;
+    }
+
+    private static void update(MessageDigest digest, double[] values) {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        for (double value : values) {
+            if (!buffer.hasRemaining()) {
+                digest.update(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+            buffer.putDouble(value);
+        }
+        digest.update(buffer.array(), 0, buffer.position());
+    }
+
+
+    // What is known about a stored result without reading its file
+    private static final class Entry {
+        final Path file;
+        final long bytes;
+        final int edgeWeightType;
+        final int dimension;
+        // the MinHash signature of its cities (null if its instance has no coordinates)
+        final long[] signature;
+
+        Entry(Path file, long bytes, int edgeWeightType, int dimension, long[] signature) {
+            this.file = file;
+            this.bytes = bytes;
+            this.edgeWeightType = edgeWeightType;
+            this.dimension = dimension;
+            this.signature = signature;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+// DistanceKernel which calculates one distance at a time using TSPInstance.distance. It works for every edge weight
+// type and on every JVM, and is used whenever the vector kernel is not available
+public class ScalarDistanceKernel implements DistanceKernel {
+
+    private final TSPInstance instance;
+
+    public ScalarDistanceKernel(TSPInstance instance) {
+        this.instance = instance;
+    }
+
+    @Override
+    public void row(int a, int from, int to, double[] out, int outOffset) {
+        for (int j = from; j < to; j++) {
+            out[outOffset + j - from] = instance.distance(a, j);
+        }
+    }
+
+    @Override
+    public void gather(int a, int[] cities, int count, double[] out) {
+        for (int i = 0; i < count; i++) {
+            out[i] = instance.distance(a, cities[i]);
+        }
+    }
+
+    @Override
+    public double tourLength(int[] tours, int offset, int pathLength) {
+        double length = 0.0;
+        int last = offset + pathLength - 1;
+        for (int i = offset; i < last; i++) {
+            length += instance.distance(tours[i], tours[i + 1]);
+        }
+        return length + instance.distance(tours[last], tours[offset]);
+    }
+
+    @Override
+    public String description() {
+        return "scalar";
+    }
+}
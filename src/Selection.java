@@ -0,0 +1,34 @@
+import java.util.Locale;
+import java.util.Random;
+
+// A way of choosing the parents for crossover. Once per generation, prepare() is given the lengths of the population
+// sorted from the fittest (shortest) to the least fit chromosome, and builds whatever the scheme needs to sample it. The worker threads then
+// call select() as many times as they need parents. select() must only read what prepare() built, take its random
+// numbers from the generator it is given, and not allocate, so that choosing the parents takes O(1) (or O(log n))
+// time per parent rather than O(n).
+// The scheme used by the GA can be set from the command line:
+//   -Dtsp.gaSelection=rank|tournament|fitness   (default: rank)   -Dtsp.gaTournamentSize=<chromosomes>   (default: 2)
+public interface Selection {
+
+    // method which prepares to select from a population of the given size, whose lengths are given sorted from the
+    // fittest to the least fit chromosome
+    void prepare(double[] lengths, int populationSize);
+
+    // method which returns the position in the prepared population of a randomly selected chromosome
+    int select(Random random);
+
+    // method which returns a new instance of the scheme given on the command line (or of the default scheme)
+    static Selection configured() {
+        String scheme = System.getProperty("tsp.gaSelection", "rank").trim().toLowerCase(Locale.ROOT);
+        switch (scheme) {
+            case "rank":
+                return new RankSelection();
+            case "tournament":
+                return new TournamentSelection(Integer.getInteger("tsp.gaTournamentSize", 2));
+            case "fitness":
+                return new FitnessProportionalSelection();
+            default:
+                throw new IllegalArgumentException("Unknown selection scheme: " + scheme);
+        }
+    }
+}
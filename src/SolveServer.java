@@ -0,0 +1,492 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Program which keeps one JVM running and solves the instances sent to it over HTTP, so that a solve pays neither
+// the start-up of the JVM nor the warm-up of the JIT compiler. Every instance sent is a job: it is parsed when it is
+// received, queued, and solved by the first free worker with the GA or the ACO for at most its time budget, after
+// which its tour and length can be fetched. The server uses the HTTP server of the JDK (com.sun.net.httpserver).
+// Usage: java -cp MachineLearning1.jar SolveServer
+// Options:
+//   -Dtsp.serverHost=<address>           address the server listens on (default: 127.0.0.1, this machine only)
+//   -Dtsp.serverPort=<port>              (default: 8080)
+//   -Dtsp.serverWorkers=<threads>        number of jobs solved at the same time (default: the number of cores)
+//   -Dtsp.serverQueue=<jobs>             number of jobs which can wait for a worker, more are refused (default: 100)
+//   -Dtsp.serverTimeLimitMs=<ms>         time budget of a job which does not give one (default: 10000)
+//   -Dtsp.serverMaxTimeLimitMs=<ms>      largest time budget a job may ask for (default: 300000)
+//   -Dtsp.serverRetainedJobs=<jobs>      number of finished jobs kept so that they can be fetched (default: 1000)
+//   -Dtsp.serverMaxBodyMB=<MB>           largest instance which is accepted (default: 64)
+// Requests:
+//   POST /jobs?solver=ga|aco&timeLimitMs=<ms>
+//       queues a job. The body is either a TSPLIB file, or JSON of the form
+//       {"name": "...", "edgeWeightType": "EUC_2D", "cities": [[x, y], ...], "solver": "aco", "timeLimitMs": 5000}
+//       (everything but the cities is optional, the edge weight type defaults to EUCLIDEAN as for TSPLIB files, and
+//       the query parameters take precedence over the members). Answers 202 with the id of the job, or 200 with the
+//       finished job if its result is in the ResultCache (-Dtsp.cacheDir)
+//   GET /jobs/<id>
+//       the status of the job (QUEUED, RUNNING, DONE, FAILED or CANCELLED) and, once it is DONE, its TourResult with
+//       the tour numbered from 1 as in TSPLIB files
+//   DELETE /jobs/<id>
+//       cancels the job. A running job stops and keeps the shortest tour it found
+// Every answer is JSON. The other command line settings (e.g. -Dtsp.gaSelection or -Dtsp.ants) apply to every job.
+// With -Dtsp.telemetryDir or -Dtsp.checkpointDir, every job writes its own files, named after its solver and id
+// (e.g. pr1002-GA-job7.csv).
+public class SolveServer {
+
+    // the states a job goes through
+    enum Status { QUEUED, RUNNING, DONE, FAILED, CANCELLED }
+
+    private final HttpServer server;
+    // the workers which solve the jobs, and the threads which answer the requests
+    private final ThreadPoolExecutor workers;
+    private final ExecutorService requestThreads;
+    // the number of threads each GA uses, so that the workers share the cores
+    private final int gaThreads;
+    private final long defaultTimeLimitMs;
+    private final long maxTimeLimitMs;
+    private final int retainedJobs;
+    private final int maxBodyBytes;
+
+    // every job which has not been forgotten, by id, and the ids of the finished jobs in the order they finished
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Queue<String> finished = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger finishedCount = new AtomicInteger();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    public SolveServer(InetSocketAddress address, int workerCount, int queueCapacity, long defaultTimeLimitMs,
+                       long maxTimeLimitMs, int retainedJobs, int maxBodyBytes) throws IOException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        workerCount = Math.max(1, workerCount);
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)));
+        this.requestThreads = Executors.newFixedThreadPool(Math.max(2, cores));
+        this.gaThreads = Math.max(1, cores / workerCount);
+        this.defaultTimeLimitMs = defaultTimeLimitMs;
+        this.maxTimeLimitMs = maxTimeLimitMs;
+        this.retainedJobs = Math.max(1, retainedJobs);
+        this.maxBodyBytes = maxBodyBytes;
+
+        this.server = HttpServer.create(address, 0);
+        server.createContext("/jobs", this::handle);
+        server.setExecutor(requestThreads);
+    }
+
+    public static void main(String[] args) throws IOException {
+        InetSocketAddress address = new InetSocketAddress(System.getProperty("tsp.serverHost", "127.0.0.1"),
+                Integer.getInteger("tsp.serverPort", 8080));
+        int workerCount = Integer.getInteger("tsp.serverWorkers", Runtime.getRuntime().availableProcessors());
+        SolveServer solveServer = new SolveServer(address, workerCount,
+                Integer.getInteger("tsp.serverQueue", 100),
+                Long.getLong("tsp.serverTimeLimitMs", 10000),
+                Long.getLong("tsp.serverMaxTimeLimitMs", 300000),
+                Integer.getInteger("tsp.serverRetainedJobs", 1000),
+                (int) Math.min(Integer.MAX_VALUE - 8, Long.getLong("tsp.serverMaxBodyMB", 64) * 1024 * 1024));
+        Runtime.getRuntime().addShutdownHook(new Thread(solveServer::stop));
+        solveServer.start();
+        System.out.println("Solving jobs at http://" + address.getHostString() + ":" + solveServer.port()
+                + "/jobs with " + Math.max(1, workerCount) + " workers");
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // method which stops answering requests and interrupts the running jobs
+    public void stop() {
+        server.stop(0);
+        workers.shutdownNow();
+        requestThreads.shutdownNow();
+    }
+
+    // method which returns the port the server listens on (useful when it was started on port 0)
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    // method which answers one request to /jobs or /jobs/<id>
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod().toUpperCase(Locale.ROOT);
+            String id = path.length() > "/jobs/".length() ? path.substring("/jobs/".length()) : null;
+            if (id == null) {
+                if (!method.equals("POST")) {
+                    exchange.getResponseHeaders().set("Allow", "POST");
+                    respond(exchange, 405, error("use POST to queue a job"));
+                } else {
+                    submit(exchange);
+                }
+                return;
+            }
+            Job job = jobs.get(id);
+            if (job == null) {
+                respond(exchange, 404, error("no job " + id));
+            } else if (method.equals("GET")) {
+                respond(exchange, 200, job.toJson());
+            } else if (method.equals("DELETE")) {
+                job.cancel();
+                respond(exchange, 200, job.toJson());
+            } else {
+                exchange.getResponseHeaders().set("Allow", "GET, DELETE");
+                respond(exchange, 405, error("use GET or DELETE on a job"));
+            }
+        } catch (RuntimeException e) {
+            respond(exchange, 500, error(String.valueOf(e)));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // method which reads the instance and the settings of a new job, and queues it
+    private void submit(HttpExchange exchange) throws IOException {
+        byte[] body = readBody(exchange.getRequestBody());
+        if (body == null) {
+            respond(exchange, 413, error("the instance is larger than " + maxBodyBytes + " bytes"));
+            return;
+        }
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        String id = Long.toString(nextId.getAndIncrement());
+
+        Job job;
+        try {
+            String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            job = isJson(body, contentType) ? jsonJob(id, body, query) : tsplibJob(id, body, query);
+        } catch (IOException | IllegalArgumentException e) {
+            respond(exchange, 400, error(e.getMessage()));
+            return;
+        }
+
+        jobs.put(id, job);
+        // a result which is already in the ResultCache is returned at once, without queueing the job
+        if (job.solver instanceof CachingSolver) {
+            TourResult cached = ((CachingSolver) job.solver).lookup(job.instance);
+            if (cached != null) {
+                job.start();
+                job.finish(cached, null);
+                retire(job);
+                exchange.getResponseHeaders().set("Location", "/jobs/" + id);
+                respond(exchange, 200, job.toJson());
+                return;
+            }
+        }
+        try {
+            workers.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(id);
+            respond(exchange, 503, error("the queue is full, try again later"));
+            return;
+        }
+        exchange.getResponseHeaders().set("Location", "/jobs/" + id);
+        respond(exchange, 202, job.toJson());
+    }
+
+    // method which reads a job whose instance is a TSPLIB file
+    private Job tsplibJob(String id, byte[] body, Map<String, String> query) throws IOException {
+        TSPInstance instance = InputReader.parseInstance(body, "job" + id);
+        return newJob(id, instance, query.get("solver"), query.get("timeLimitMs"));
+    }
+
+    // method which reads a job whose instance is given as JSON
+    private Job jsonJob(String id, byte[] body, Map<String, String> query) {
+        Object parsed = Json.parse(new String(body, StandardCharsets.UTF_8));
+        if (!(parsed instanceof Map)) {
+            throw new IllegalArgumentException("the JSON of a job must be an object");
+        }
+        Map<?, ?> object = (Map<?, ?>) parsed;
+
+        Object cities = object.get("cities");
+        if (!(cities instanceof List) || ((List<?>) cities).isEmpty()) {
+            throw new IllegalArgumentException("\"cities\" must be a non-empty array of [x, y] pairs");
+        }
+        List<?> list = (List<?>) cities;
+        double[] x = new double[list.size()];
+        double[] y = new double[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            Object city = list.get(i);
+            if (!(city instanceof List) || ((List<?>) city).size() != 2
+                    || !(((List<?>) city).get(0) instanceof Double) || !(((List<?>) city).get(1) instanceof Double)) {
+                throw new IllegalArgumentException("city " + (i + 1) + " is not an [x, y] pair of numbers");
+            }
+            x[i] = (Double) ((List<?>) city).get(0);
+            y[i] = (Double) ((List<?>) city).get(1);
+            // e.g. 1e400, which would make the length of every tour infinite (which JSON cannot hold)
+            if (!Double.isFinite(x[i]) || !Double.isFinite(y[i])) {
+                throw new IllegalArgumentException("city " + (i + 1) + " has a coordinate which is too large");
+            }
+        }
+
+        TSPInstance.EdgeWeightType type = TSPInstance.EdgeWeightType.EUCLIDEAN;
+        if (object.get("edgeWeightType") != null) {
+            String typeName = String.valueOf(object.get("edgeWeightType")).trim().toUpperCase(Locale.ROOT);
+            try {
+                type = TSPInstance.EdgeWeightType.valueOf(typeName);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("unsupported edgeWeightType " + typeName);
+            }
+            if (type == TSPInstance.EdgeWeightType.EXPLICIT) {
+                throw new IllegalArgumentException("EXPLICIT instances must be sent as TSPLIB files");
+            }
+        }
+        String name = object.get("name") instanceof String ? (String) object.get("name") : "job" + id;
+        TSPInstance instance = new TSPInstance(name, x.length, type, x, y, null);
+
+        String solver = query.containsKey("solver") ? query.get("solver") : member(object, "solver");
+        String timeLimit = query.containsKey("timeLimitMs") ? query.get("timeLimitMs") : member(object, "timeLimitMs");
+        return newJob(id, instance, solver, timeLimit);
+    }
+
+    private Job newJob(String id, TSPInstance instance, String solver, String timeLimitMs) {
+        String name = solverName(solver);
+        long timeLimit = timeLimit(timeLimitMs);
+        return new Job(id, instance, name, timeLimit, newSolver(id, name, timeLimit));
+    }
+
+    // method which returns a member of a JSON object as a string (whole numbers without a fraction), or null
+    private static String member(Map<?, ?> object, String name) {
+        Object value = object.get(name);
+        if (value instanceof Double && (Double) value == Math.rint((Double) value)) {
+            return Long.toString(((Double) value).longValue());
+        }
+        return value == null ? null : String.valueOf(value);
+    }
+
+    // method which checks the name of the solver asked for (default: the GA)
+    private static String solverName(String solver) {
+        if (solver == null) {
+            return "GA";
+        }
+        String name = solver.trim().toUpperCase(Locale.ROOT);
+        if (!name.equals("GA") && !name.equals("ACO")) {
+            throw new IllegalArgumentException("unknown solver " + solver + ", use ga or aco");
+        }
+        return name;
+    }
+
+    // method which checks the time budget asked for
+    private long timeLimit(String timeLimitMs) {
+        if (timeLimitMs == null) {
+            return defaultTimeLimitMs;
+        }
+        long limit;
+        try {
+            limit = Long.parseLong(timeLimitMs.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("timeLimitMs must be a whole number of milliseconds");
+        }
+        if (limit <= 0 || limit > maxTimeLimitMs) {
+            throw new IllegalArgumentException("timeLimitMs must be between 1 and " + maxTimeLimitMs);
+        }
+        return limit;
+    }
+
+    // method which solves a job on a worker thread. The distances are built here rather than when the job is
+    // received, so that only the instances being solved take up their memory
+    private void run(Job job) {
+        if (!job.start()) {
+            // cancelled while it was queued
+            retire(job);
+            return;
+        }
+        try {
+            DistanceProvider distances = DistanceProviders.create(job.instance);
+            job.finish(job.solver.solve(job.instance, distances), null);
+        } catch (RuntimeException | OutOfMemoryError e) {
+            job.finish(null, String.valueOf(e));
+        } finally {
+            // a cancel which came after the run had already ended must not interrupt the next job
+            Thread.interrupted();
+            retire(job);
+        }
+    }
+
+    // method which returns a new solver for a job, which stops when its time budget is used up (or when one of the
+    // limits given on the command line is reached first), and which uses the ResultCache if one is given. Its
+    // telemetry and checkpoint files are named after the job, so jobs on the same instance never share them
+    private Solver newSolver(String id, String solver, long timeLimitMs) {
+        String parameters = "timeLimitMs=" + timeLimitMs;
+        String runName = solver + "-job" + id;
+        if (solver.equals("ACO")) {
+            AntColonyOptimisation aco = new AntColonyOptimisation();
+            aco.setRunName(runName);
+            aco.setTermination(TerminationPolicy.configured("tsp.acoIterations", Integer.MAX_VALUE)
+                    .withTimeLimit(timeLimitMs));
+            return CachingSolver.configured(aco, parameters);
+        }
+        GeneticAlgorithm ga = new GeneticAlgorithm();
+        ga.setRunName(runName);
+        ga.setParallelism(gaThreads);
+        ga.setTermination(TerminationPolicy.configured("tsp.gaGenerations", Integer.MAX_VALUE)
+                .withTimeLimit(timeLimitMs));
+        return CachingSolver.configured(ga, parameters);
+    }
+
+    // method which remembers that a job has finished, forgetting the oldest finished jobs if there are too many
+    private void retire(Job job) {
+        finished.add(job.id);
+        if (finishedCount.incrementAndGet() > retainedJobs) {
+            String oldest = finished.poll();
+            if (oldest != null) {
+                finishedCount.decrementAndGet();
+                jobs.remove(oldest);
+            }
+        }
+    }
+
+    // method which reads the body of a request, or returns null if it is larger than the limit
+    private byte[] readBody(InputStream input) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[65536];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            if (body.size() + read > maxBodyBytes) {
+                return null;
+            }
+            body.write(buffer, 0, read);
+        }
+        return body.toByteArray();
+    }
+
+    // method which returns whether a body holds JSON rather than a TSPLIB file (which never starts with '{')
+    private static boolean isJson(byte[] body, String contentType) {
+        if (contentType != null && contentType.toLowerCase(Locale.ROOT).contains("json")) {
+            return true;
+        }
+        for (byte b : body) {
+            if (!Character.isWhitespace(b)) {
+                return b == '{';
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(parameter.substring(0, equals), "UTF-8"),
+                        URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+            }
+        }
+        return parameters;
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + Json.quote(String.valueOf(message)) + "}";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+
+    // One instance sent to the server, with the settings it is solved with and, once it has run, its result
+    private static final class Job {
+        final String id;
+        final TSPInstance instance;
+        final String solverName;
+        final long timeLimitMs;
+        // the solver which runs the job
+        final Solver solver;
+
+        // the state of the job, guarded by the job itself
+        private Status status = Status.QUEUED;
+        private boolean cancelled;
+        private Thread worker;
+        private TourResult result;
+        private String error;
+
+        Job(String id, TSPInstance instance, String solverName, long timeLimitMs, Solver solver) {
+            this.id = id;
+            this.instance = instance;
+            this.solverName = solverName;
+            this.timeLimitMs = timeLimitMs;
+            this.solver = solver;
+        }
+
+        // method which marks the job as running on the current thread. Returns false if it was cancelled
+        synchronized boolean start() {
+            if (status != Status.QUEUED) {
+                return false;
+            }
+            status = Status.RUNNING;
+            worker = Thread.currentThread();
+            return true;
+        }
+
+        synchronized void finish(TourResult result, String error) {
+            this.result = result;
+            this.error = error;
+            this.worker = null;
+            status = error != null ? Status.FAILED : cancelled ? Status.CANCELLED : Status.DONE;
+        }
+
+        // method which cancels the job: a queued job is never run, and a running job is interrupted, which stops
+        // the solver with the shortest tour found so far
+        synchronized void cancel() {
+            if (status == Status.QUEUED) {
+                status = Status.CANCELLED;
+            } else if (status == Status.RUNNING) {
+                cancelled = true;
+                worker.interrupt();
+            }
+        }
+
+        synchronized String toJson() {
+            StringBuilder json = new StringBuilder(64 + (result == null ? 0 : result.tour.length * 6));
+            json.append("{\"id\":").append(Json.quote(id))
+                    .append(",\"status\":\"").append(status).append('"')
+                    .append(",\"solver\":\"").append(solverName).append('"')
+                    .append(",\"instance\":").append(Json.quote(instance.name))
+                    .append(",\"cities\":").append(instance.dimension)
+                    .append(",\"timeLimitMs\":").append(timeLimitMs);
+            if (error != null) {
+                json.append(",\"error\":").append(Json.quote(error));
+            }
+            if (result != null) {
+                json.append(",\"length\":").append(result.length)
+                        .append(",\"steps\":").append(result.steps)
+                        .append(",\"evaluations\":").append(result.evaluations)
+                        .append(",\"stopReason\":\"").append(result.stopReason).append('"')
+                        .append(",\"timeMillis\":").append(result.timeMillis)
+                        .append(",\"tour\":[");
+                for (int i = 0; i < result.tour.length; i++) {
+                    json.append(i == 0 ? "" : ",").append(result.tour[i] + 1);
+                }
+                json.append(']');
+            }
+            return json.append('}').toString();
+        }
+    }
+}
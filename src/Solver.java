@@ -0,0 +1,18 @@
+// An algorithm which finds a short tour through the cities of a TSP instance.
+// A solver object keeps the state of the run it is performing in its own fields, so separate solver objects can
+// solve instances at the same time on different threads. A single solver object performs one run at a time.
+public interface Solver {
+
+    // the name of the algorithm, e.g. "GA" or "ACO"
+    String name();
+
+    // method which finds a tour through the cities of the instance using the given distances,
+    // and returns the shortest tour found together with how the run went
+    TourResult solve(TSPInstance instance, DistanceProvider distances);
+
+    // method which makes the next run start from the given tour (an order of every city of the instance it will
+    // solve) instead of from scratch, e.g. the tour of a similar instance found in the ResultCache. Solvers which
+    // cannot start from a tour ignore it
+    default void warmStart(int[] tour) {
+    }
+}
@@ -0,0 +1,211 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+
+// Pheromone store which only keeps a level for the edges which the ants actually build good tours from: the edges
+// between every city and its candidates (its nearest neighbours), and the edges of the best tour found so far.
+// Every other edge has the initial level, and the updates of these edges are dropped. This takes O(n*k) memory
+// instead of the O(n^2) of the PheromoneMatrix, so that instances of 10,000 cities and more fit in a normal heap.
+// The edges are kept in an open-addressing hash table (with linear probing) which is never more than half full.
+// The table only changes in keepTour(), between iterations, so the ants can look edges up without locking, and
+// update their levels atomically in place like the PheromoneMatrix.
+public class SparsePheromoneStore implements PheromoneStore {
+
+    // handle used to read and atomically update single elements of the levels array
+    private static final VarHandle LEVEL = MethodHandles.arrayElementVarHandle(double[].class);
+
+    // the nearest neighbours of every city, whose edges always keep their level
+    private final int[][] candidateLists;
+    // the level of every edge which is not in the table
+    private final double defaultLevel;
+    // the rate at which pheromone evaporates whenever an edge is updated
+    private final double evaporationRate;
+    // the key of the edge in every slot of the table (0 for an empty slot), and its pheromone level
+    private long[] keys;
+    private double[] levels;
+    // the number of edges in the table
+    private int size;
+
+    public SparsePheromoneStore(int[][] candidateLists, double initialLevel, double evaporationRate) {
+        this.candidateLists = candidateLists;
+        this.defaultLevel = initialLevel;
+        this.evaporationRate = evaporationRate;
+        int n = candidateLists.length;
+        int listSize = n == 0 ? 0 : candidateLists[0].length;
+        allocate((long) n * listSize + n);
+        insertCandidateEdges(null, null);
+    }
+
+    @Override
+    public double get(int a, int b) {
+        if (a == b) {
+            return 0.0;
+        }
+        int slot = find(a, b);
+        return slot < 0 ? defaultLevel : (double) LEVEL.getOpaque(levels, slot);
+    }
+
+    @Override
+    public double update(int a, int b, double deposit) {
+        int slot = find(a, b);
+        if (slot < 0) {
+            return defaultLevel;
+        }
+        double level;
+        double updatedLevel;
+        do {
+            level = (double) LEVEL.getVolatile(levels, slot);
+            updatedLevel = (1.0 - evaporationRate) * level + evaporationRate * deposit;
+        } while (!LEVEL.compareAndSet(levels, slot, level, updatedLevel));
+        return updatedLevel;
+    }
+
+    // the edges of the tour which are not in the table yet are added with the initial level. If that would make the
+    // table more than half full, it is built again from the candidate edges and this tour only, dropping the edges of
+    // the previous best tours
+    @Override
+    public void keepTour(int[] path, int pathSize) {
+        int missing = 0;
+        for (int i = 0; i < pathSize; i++) {
+            int a = path[i];
+            int b = path[i + 1 == pathSize ? 0 : i + 1];
+            if (a != b && find(a, b) < 0) {
+                missing++;
+            }
+        }
+        if (missing == 0) {
+            return;
+        }
+
+        if (2L * (size + missing) > keys.length) {
+            long[] oldKeys = keys;
+            double[] oldLevels = levels;
+            allocate(candidateEdges() + pathSize);
+            insertCandidateEdges(oldKeys, oldLevels);
+            for (int i = 0; i < pathSize; i++) {
+                int a = path[i];
+                int b = path[i + 1 == pathSize ? 0 : i + 1];
+                if (a != b && find(a, b) < 0) {
+                    insert(a, b, levelIn(oldKeys, oldLevels, a, b));
+                }
+            }
+        } else {
+            for (int i = 0; i < pathSize; i++) {
+                int a = path[i];
+                int b = path[i + 1 == pathSize ? 0 : i + 1];
+                if (a != b && find(a, b) < 0) {
+                    insert(a, b, defaultLevel);
+                }
+            }
+        }
+    }
+
+    @Override
+    public long memoryFootprint() {
+        return (long) keys.length * (Long.BYTES + Double.BYTES);
+    }
+
+    // the levels are written as a marker (1 for the sparse store), the number of edges and the key and level of each
+    @Override
+    public long checkpointBytes() {
+        return 2 * Integer.BYTES + (long) size * (Long.BYTES + Double.BYTES);
+    }
+
+    @Override
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(1).putInt(size);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                buffer.putLong(keys[slot]).putDouble(levels[slot]);
+            }
+        }
+    }
+
+    @Override
+    public void readFrom(ByteBuffer buffer) {
+        if (buffer.getInt() != 1) {
+            throw new IllegalStateException("the checkpoint was not written by a sparse pheromone store "
+                    + "(see -Dtsp.pheromoneStore)");
+        }
+        int edges = buffer.getInt();
+        allocate(Math.max(edges, candidateEdges() + candidateLists.length));
+        for (int i = 0; i < edges; i++) {
+            long key = buffer.getLong();
+            insert((int) (key >>> 32), (int) key, buffer.getDouble());
+        }
+    }
+
+    // method which replaces the table by an empty one with room for the given number of edges
+    private void allocate(long edges) {
+        int capacity = Integer.highestOneBit((int) Math.max(1, Math.min(1 << 29, 2 * edges)));
+        if (capacity < 2 * edges) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        levels = new double[capacity];
+        size = 0;
+    }
+
+    // method which adds the edge between every city and its candidates to the table, with the level it had in the
+    // given old table (or the initial level if there is no old table)
+    private void insertCandidateEdges(long[] oldKeys, double[] oldLevels) {
+        for (int r = 0; r < candidateLists.length; r++) {
+            for (int s : candidateLists[r]) {
+                if (find(r, s) < 0) {
+                    insert(r, s, oldKeys == null ? defaultLevel : levelIn(oldKeys, oldLevels, r, s));
+                }
+            }
+        }
+    }
+
+    // method which returns the number of edge slots of the candidate lists (an upper bound on the candidate edges)
+    private long candidateEdges() {
+        long edges = 0;
+        for (int[] candidates : candidateLists) {
+            edges += candidates.length;
+        }
+        return edges;
+    }
+
+    // method which returns the key of the edge between city a and city b (the same as the key of the edge from b to a).
+    // the larger city is at least 1, so no key is 0
+    private static long key(int a, int b) {
+        return ((long) Math.max(a, b) << 32) | Math.min(a, b);
+    }
+
+    // method which returns the slot of the edge between city a and city b in the table, or -1 if it is not in it
+    private int find(int a, int b) {
+        return find(keys, a, b);
+    }
+
+    private static int find(long[] table, int a, int b) {
+        long key = key(a, b);
+        int mask = table.length - 1;
+        for (int slot = (int) TourHash.edge(a, b) & mask; ; slot = (slot + 1) & mask) {
+            if (table[slot] == key) {
+                return slot;
+            }
+            if (table[slot] == 0) {
+                return -1;
+            }
+        }
+    }
+
+    // method which returns the level of the edge between city a and city b in the given table
+    private double levelIn(long[] table, double[] tableLevels, int a, int b) {
+        int slot = find(table, a, b);
+        return slot < 0 ? defaultLevel : tableLevels[slot];
+    }
+
+    // method which adds the edge between city a and city b, which is not in the table, with the given level
+    private void insert(int a, int b, double level) {
+        int mask = keys.length - 1;
+        int slot = (int) TourHash.edge(a, b) & mask;
+        while (keys[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key(a, b);
+        levels[slot] = level;
+        size++;
+    }
+}
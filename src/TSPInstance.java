@@ -0,0 +1,149 @@
+import java.util.ArrayList;
+
+// A TSP instance as read from a TSPLIB file: its header, the coordinates of its cities (if it has any) and,
+// for EXPLICIT instances, the weights given in the file. The distance between two cities is calculated using
+// the convention of the instance's EDGE_WEIGHT_TYPE, so tour lengths can be compared with the published optima.
+public class TSPInstance {
+
+    // the edge weight types which are supported, and how the distance between two cities is calculated for each
+    public enum EdgeWeightType {
+        // Euclidean distance rounded to the nearest integer
+        EUC_2D,
+        // Euclidean distance rounded up to the next integer
+        CEIL_2D,
+        // pseudo-Euclidean distance used by the att48 and att532 instances
+        ATT,
+        // geographical distance, where the coordinates are latitudes and longitudes in DDD.MM format
+        GEO,
+        // distances given explicitly in the EDGE_WEIGHT_SECTION of the file
+        EXPLICIT,
+        // Euclidean distance which is not rounded (used for instances which do not declare their type)
+        EUCLIDEAN
+    }
+
+    // the radius of the earth and the value of pi used by TSPLIB for GEO distances
+    private static final double earthRadius = 6378.388;
+    private static final double geoPi = 3.141592;
+
+    // the name of the instance
+    final String name;
+    // the number of cities
+    final int dimension;
+    // how the distances between the cities are calculated
+    final EdgeWeightType edgeWeightType;
+    // the coordinates of every city (null if the file does not give any)
+    final double[] x;
+    final double[] y;
+    // the explicit weights as a packed upper triangle (only for EXPLICIT instances)
+    final double[] weights;
+
+    // the latitude and longitude of every city in radians (only for GEO instances)
+    private final double[] latitude;
+    private final double[] longitude;
+
+    TSPInstance(String name, int dimension, EdgeWeightType edgeWeightType, double[] x, double[] y, double[] weights) {
+        this.name = name;
+        this.dimension = dimension;
+        this.edgeWeightType = edgeWeightType;
+        this.x = x;
+        this.y = y;
+        this.weights = weights;
+
+        if (edgeWeightType == EdgeWeightType.GEO) {
+            latitude = new double[dimension];
+            longitude = new double[dimension];
+            for (int i = 0; i < dimension; i++) {
+                latitude[i] = geoRadians(x[i]);
+                longitude[i] = geoRadians(y[i]);
+            }
+        } else {
+            latitude = null;
+            longitude = null;
+        }
+    }
+
+    // method which returns the distance between city i and city j, using the convention of the edge weight type
+    public double distance(int i, int j) {
+        if (i == j) {
+            return 0.0;
+        }
+        switch (edgeWeightType) {
+            case EUC_2D:
+                return (int) (euclidean(i, j) + 0.5);
+            case CEIL_2D:
+                return Math.ceil(euclidean(i, j));
+            case ATT: {
+                double dx = x[i] - x[j];
+                double dy = y[i] - y[j];
+                double r = Math.sqrt((dx * dx + dy * dy) / 10.0);
+                int t = (int) (r + 0.5);
+                return t < r ? t + 1 : t;
+            }
+            case GEO: {
+                double q1 = Math.cos(longitude[i] - longitude[j]);
+                double q2 = Math.cos(latitude[i] - latitude[j]);
+                double q3 = Math.cos(latitude[i] + latitude[j]);
+                return (int) (earthRadius * Math.acos(0.5 * ((1.0 + q1) * q2 - (1.0 - q1) * q3)) + 1.0);
+            }
+            case EXPLICIT:
+                return weights[PackedTriangularMatrix.index(dimension, i, j)];
+            default:
+                return euclidean(i, j);
+        }
+    }
+
+    private double euclidean(int i, int j) {
+        double dx = x[i] - x[j];
+        double dy = y[i] - y[j];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    // method which converts a coordinate in DDD.MM format into radians, as specified by TSPLIB
+    private static double geoRadians(double coordinate) {
+        int degrees = (int) coordinate;
+        double minutes = coordinate - degrees;
+        return geoPi * (degrees + 5.0 * minutes / 3.0) / 180.0;
+    }
+
+    // method which returns whether every distance of this instance is a whole number
+    public boolean hasIntegralDistances() {
+        return edgeWeightType != EdgeWeightType.EUCLIDEAN && edgeWeightType != EdgeWeightType.EXPLICIT;
+    }
+
+    // method which returns whether the cities have coordinates
+    public boolean hasCoordinates() {
+        return x != null;
+    }
+
+    // method which returns a fingerprint of the contents of the instance (its edge weight type, its coordinates and
+    // its weights, but not its name), which tells apart different instances with the same name (see Checkpoint)
+    public long fingerprint() {
+        long hash = TourHash.mix(31L * edgeWeightType.ordinal() + dimension);
+        if (x != null) {
+            for (int i = 0; i < dimension; i++) {
+                hash = TourHash.mix(hash ^ Double.doubleToLongBits(x[i]));
+                hash = TourHash.mix(hash ^ Double.doubleToLongBits(y[i]));
+            }
+        }
+        if (weights != null) {
+            for (double weight : weights) {
+                hash = TourHash.mix(hash ^ Double.doubleToLongBits(weight));
+            }
+        }
+        return hash;
+    }
+
+    // method which returns the cities of the instance. Cities without coordinates have a null location
+    public ArrayList<City> cities() {
+        ArrayList<City> cities = new ArrayList<>(dimension);
+        for (int i = 0; i < dimension; i++) {
+            cities.add(new City(i + 1, hasCoordinates() ? new Location(x[i], y[i]) : null));
+        }
+        return cities;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + dimension + " cities, " + edgeWeightType + ")";
+    }
+}
@@ -0,0 +1,174 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+
+// Convergence telemetry of a single run of the GA or the ACO. Every sampled generation (or iteration) is written as
+// one row holding the best tour length found so far, the mean tour length of the generation, measures of how
+// diverse the search still is, and how long each phase of the algorithm took since the previous row.
+// Telemetry is off unless a directory is given on the command line:
+//   -Dtsp.telemetryDir=<directory>       (one file per instance and algorithm, e.g. berlin52-GA.csv)
+//   -Dtsp.telemetryFormat=csv|jsonl      (default: csv)
+//   -Dtsp.telemetryEvery=<steps>         (default: 10, the last step of a run is always written)
+// When it is off, every method returns straight away without reading the clock.
+public class Telemetry implements AutoCloseable {
+
+    // the telemetry used when no directory was given, which records nothing
+    private static final Telemetry disabled = new Telemetry();
+
+    // where the rows are written (null when disabled)
+    private final BufferedWriter writer;
+    private final boolean json;
+    private final int every;
+    private final String solver;
+    private final String[] measureNames;
+    private final String[] phaseNames;
+
+    // the time spent in every phase since the previous row, and when the run started
+    private final long[] phaseNanos;
+    private final long startTime;
+
+    private Telemetry() {
+        this.writer = null;
+        this.json = false;
+        this.every = Integer.MAX_VALUE;
+        this.solver = null;
+        this.measureNames = new String[0];
+        this.phaseNames = new String[0];
+        this.phaseNanos = new long[0];
+        this.startTime = 0;
+    }
+
+    private Telemetry(Path file, boolean json, int every, String solver, String[] measureNames, String[] phaseNames)
+            throws IOException {
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        this.json = json;
+        this.every = Math.max(1, every);
+        this.solver = solver;
+        this.measureNames = measureNames;
+        this.phaseNames = phaseNames;
+        this.phaseNanos = new long[phaseNames.length];
+        this.startTime = System.nanoTime();
+
+        if (!json) {
+            StringBuilder header = new StringBuilder("step,elapsedMs,best,mean");
+            for (String measure : measureNames) {
+                header.append(',').append(measure);
+            }
+            for (String phase : phaseNames) {
+                header.append(',').append(phase).append("Ms");
+            }
+            writer.write(header.toString());
+            writer.newLine();
+        }
+    }
+
+    // method which starts the telemetry of a run of the given solver on the given instance using the settings from
+    // the command line. measureNames names the diversity measures of the solver, and phaseNames the phases whose
+    // times are recorded
+    public static Telemetry start(String solver, String instanceName, String[] measureNames, String... phaseNames) {
+        String directory = System.getProperty("tsp.telemetryDir");
+        if (directory == null) {
+            return disabled;
+        }
+        boolean json = System.getProperty("tsp.telemetryFormat", "csv").trim().equalsIgnoreCase("jsonl");
+        int every = Integer.getInteger("tsp.telemetryEvery", 10);
+        try {
+            Path dir = Paths.get(directory);
+            Files.createDirectories(dir);
+            Path file = dir.resolve(instanceName + "-" + solver + (json ? ".jsonl" : ".csv"));
+            return new Telemetry(file, json, every, solver, measureNames, phaseNames);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot write telemetry to " + directory, e);
+        }
+    }
+
+    // method which returns whether anything is being recorded
+    public boolean isEnabled() {
+        return writer != null;
+    }
+
+    // method which returns the current time, to be passed to lap() at the end of the next phase (0 when disabled)
+    public long now() {
+        return writer == null ? 0 : System.nanoTime();
+    }
+
+    // method which adds the time since phaseStart to the given phase, and returns the current time
+    // so that it can be used as the start of the next phase
+    public long lap(int phase, long phaseStart) {
+        if (writer == null) {
+            return 0;
+        }
+        long time = System.nanoTime();
+        phaseNanos[phase] += time - phaseStart;
+        return time;
+    }
+
+    // method which returns whether the given step (counted from 0) should be written.
+    // the statistics of a row are only worth calculating when this returns true
+    public boolean shouldSample(int step, boolean lastStep) {
+        return writer != null && (lastStep || (step + 1) % every == 0);
+    }
+
+    // method which writes one row, with one value for each of the measures, and starts measuring the phase times
+    // of the next one
+    public void record(int step, double best, double mean, double... measures) {
+        if (writer == null) {
+            return;
+        }
+        double elapsed = (System.nanoTime() - startTime) / 1e6;
+        StringBuilder row = new StringBuilder(128);
+        if (json) {
+            row.append("{\"solver\":\"").append(solver).append("\",\"step\":").append(step)
+                    .append(",\"elapsedMs\":").append(format(elapsed))
+                    .append(",\"best\":").append(format(best))
+                    .append(",\"mean\":").append(format(mean));
+            for (int i = 0; i < measureNames.length; i++) {
+                row.append(",\"").append(measureNames[i]).append("\":").append(format(measures[i]));
+            }
+            row.append(",\"phasesMs\":{");
+            for (int i = 0; i < phaseNames.length; i++) {
+                row.append(i == 0 ? "\"" : ",\"").append(phaseNames[i]).append("\":")
+                        .append(format(phaseNanos[i] / 1e6));
+            }
+            row.append("}}");
+        } else {
+            row.append(step).append(',').append(format(elapsed)).append(',').append(format(best))
+                    .append(',').append(format(mean));
+            for (double measure : measures) {
+                row.append(',').append(format(measure));
+            }
+            for (long nanos : phaseNanos) {
+                row.append(',').append(format(nanos / 1e6));
+            }
+        }
+        Arrays.fill(phaseNanos, 0);
+        try {
+            writer.write(row.toString());
+            writer.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot write telemetry", e);
+        }
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.4f", value);
+    }
+
+    @Override
+    public void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot write telemetry", e);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+import java.nio.ByteBuffer;
+
+// When a run of the GA or the ACO stops. A run stops as soon as any one of the following limits is reached:
+//   * a maximum number of steps (generations of the GA, iterations of the ACO)
+//   * a wall-clock time limit
+//   * a maximum number of tour evaluations
+//   * a target tour length (the run stops once a tour at least this short has been found)
+//   * a maximum number of steps without finding a shorter tour (stagnation)
+// or when the thread running it is interrupted. Whichever way a run stops, the solver returns the best tour so far.
+// A policy is immutable and can be shared between runs; the progress of a single run is kept by a Tracker.
+// The limits can be set from the command line (each is off unless given):
+//   -Dtsp.timeLimitMs=<milliseconds>  -Dtsp.maxEvaluations=<tours>  -Dtsp.targetLength=<length>  -Dtsp.stagnation=<steps>
+public final class TerminationPolicy {
+
+    // the reasons for which a run can stop (CACHED: the run was not needed, its result was in the ResultCache)
+    public enum Reason { STEPS, TIME_LIMIT, EVALUATIONS, TARGET_LENGTH, STAGNATION, INTERRUPTED, CACHED }
+
+    // the limits of this policy. A limit which is not set holds the value which can never be reached
+    private final int maxSteps;
+    private final long timeLimitNanos;
+    private final long maxEvaluations;
+    private final double targetLength;
+    private final int stagnationLimit;
+
+    private TerminationPolicy(int maxSteps, long timeLimitNanos, long maxEvaluations, double targetLength,
+                              int stagnationLimit) {
+        this.maxSteps = maxSteps;
+        this.timeLimitNanos = timeLimitNanos;
+        this.maxEvaluations = maxEvaluations;
+        this.targetLength = targetLength;
+        this.stagnationLimit = stagnationLimit;
+    }
+
+    // method which returns a policy which stops after the given number of steps, and has no other limit
+    public static TerminationPolicy maxSteps(int steps) {
+        return new TerminationPolicy(steps, Long.MAX_VALUE, Long.MAX_VALUE, Double.NEGATIVE_INFINITY, Integer.MAX_VALUE);
+    }
+
+    // method which returns a policy with no limit at all, which only stops when the thread running it is interrupted
+    public static TerminationPolicy unlimited() {
+        return maxSteps(Integer.MAX_VALUE);
+    }
+
+    // method which returns a policy which stops after the number of steps given by the stepsProperty system property
+    // (or defaultSteps), together with the limits given on the command line
+    public static TerminationPolicy configured(String stepsProperty, int defaultSteps) {
+        TerminationPolicy policy = maxSteps(Integer.getInteger(stepsProperty, defaultSteps));
+        if (System.getProperty("tsp.timeLimitMs") != null) {
+            policy = policy.withTimeLimit(Long.parseLong(System.getProperty("tsp.timeLimitMs").trim()));
+        }
+        if (System.getProperty("tsp.maxEvaluations") != null) {
+            policy = policy.withMaxEvaluations(Long.parseLong(System.getProperty("tsp.maxEvaluations").trim()));
+        }
+        if (System.getProperty("tsp.targetLength") != null) {
+            policy = policy.withTargetLength(Double.parseDouble(System.getProperty("tsp.targetLength").trim()));
+        }
+        if (System.getProperty("tsp.stagnation") != null) {
+            policy = policy.withStagnationLimit(Integer.parseInt(System.getProperty("tsp.stagnation").trim()));
+        }
+        return policy;
+    }
+
+    // methods which return a copy of this policy with one of its limits changed
+    public TerminationPolicy withMaxSteps(int steps) {
+        return new TerminationPolicy(steps, timeLimitNanos, maxEvaluations, targetLength, stagnationLimit);
+    }
+    public TerminationPolicy withTimeLimit(long milliseconds) {
+        long nanos = milliseconds >= Long.MAX_VALUE / 1000000 ? Long.MAX_VALUE : milliseconds * 1000000;
+        return new TerminationPolicy(maxSteps, nanos, maxEvaluations, targetLength, stagnationLimit);
+    }
+    public TerminationPolicy withMaxEvaluations(long evaluations) {
+        return new TerminationPolicy(maxSteps, timeLimitNanos, evaluations, targetLength, stagnationLimit);
+    }
+    public TerminationPolicy withTargetLength(double length) {
+        return new TerminationPolicy(maxSteps, timeLimitNanos, maxEvaluations, length, stagnationLimit);
+    }
+    public TerminationPolicy withStagnationLimit(int steps) {
+        return new TerminationPolicy(maxSteps, timeLimitNanos, maxEvaluations, targetLength, steps);
+    }
+
+    // method which starts tracking a new run, starting its clock now
+    public Tracker start() {
+        return new Tracker();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder string = new StringBuilder();
+        if (maxSteps != Integer.MAX_VALUE) {
+            string.append(maxSteps).append(" steps, ");
+        }
+        if (timeLimitNanos != Long.MAX_VALUE) {
+            string.append(timeLimitNanos / 1000000).append(" ms, ");
+        }
+        if (maxEvaluations != Long.MAX_VALUE) {
+            string.append(maxEvaluations).append(" evaluations, ");
+        }
+        if (targetLength != Double.NEGATIVE_INFINITY) {
+            string.append("target ").append(targetLength).append(", ");
+        }
+        if (stagnationLimit != Integer.MAX_VALUE) {
+            string.append(stagnationLimit).append(" steps without improvement, ");
+        }
+        return string.length() == 0 ? "unlimited" : string.substring(0, string.length() - 2);
+    }
+
+
+    // The progress of one run against the policy. The solver calls step() at the end of every step,
+    // and stops as soon as isDone() returns true
+    public final class Tracker {
+        // the number of bytes taken up by the progress of a run in a checkpoint
+        static final int CHECKPOINT_BYTES = Integer.BYTES + Long.BYTES + Double.BYTES + Integer.BYTES;
+
+        private final long startTime = System.nanoTime();
+        // the number of steps completed and tours evaluated so far
+        private int steps;
+        private long evaluations;
+        // the length of the shortest tour found so far, and the step during which it was found
+        private double bestLength = Double.POSITIVE_INFINITY;
+        private int lastImprovement;
+        // why the run stopped (null while it is still running)
+        private Reason reason;
+
+        private Tracker() {
+        }
+
+        // method which records the end of a step, during which the given number of tours were evaluated and after which
+        // the shortest tour found so far has the given length
+        public void step(long evaluationsDuringStep, double shortestLength) {
+            steps++;
+            evaluations += evaluationsDuringStep;
+            if (shortestLength < bestLength) {
+                bestLength = shortestLength;
+                lastImprovement = steps;
+            }
+        }
+
+        // method which returns whether the run should stop. Once this has returned true it keeps returning true
+        public boolean isDone() {
+            if (reason == null) {
+                reason = check();
+            }
+            return reason != null;
+        }
+
+        private Reason check() {
+            if (Thread.currentThread().isInterrupted()) {
+                return Reason.INTERRUPTED;
+            }
+            if (steps >= maxSteps) {
+                return Reason.STEPS;
+            }
+            if (evaluations >= maxEvaluations) {
+                return Reason.EVALUATIONS;
+            }
+            if (bestLength <= targetLength) {
+                return Reason.TARGET_LENGTH;
+            }
+            if (steps - lastImprovement >= stagnationLimit) {
+                return Reason.STAGNATION;
+            }
+            if (timeLimitNanos != Long.MAX_VALUE && System.nanoTime() - startTime >= timeLimitNanos) {
+                return Reason.TIME_LIMIT;
+            }
+            return null;
+        }
+
+        // method which returns why the run stopped (null if it has not stopped yet)
+        public Reason reason() {
+            return reason;
+        }
+
+        public int steps() {
+            return steps;
+        }
+
+        public long evaluations() {
+            return evaluations;
+        }
+
+        // method which writes the progress of the run to a checkpoint (see Checkpoint)
+        void writeTo(ByteBuffer buffer) {
+            buffer.putInt(steps).putLong(evaluations).putDouble(bestLength).putInt(lastImprovement);
+        }
+
+        // method which continues the progress of a run which was written to a checkpoint. The clock of the time limit
+        // is not restored, so a resumed run gets the whole time limit again
+        void readFrom(ByteBuffer buffer) {
+            steps = buffer.getInt();
+            evaluations = buffer.getLong();
+            bestLength = buffer.getDouble();
+            lastImprovement = buffer.getInt();
+            reason = null;
+        }
+    }
+}
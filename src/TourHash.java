@@ -0,0 +1,87 @@
+// Canonical fingerprint of a tour: the XOR of a 64-bit key for every (undirected) edge of the tour.
+// Since a tour is the set of its edges, every rotation of a path and the path travelled backwards have the same
+// fingerprint, so it can be used to recognise the same tour however it is written. Rather than storing a random key
+// for each of the n(n-1)/2 possible edges (Zobrist hashing), the key of an edge is calculated by mixing the numbers
+// of its two cities, which gives keys which are as good as random for this purpose without using any memory.
+// Because XOR is its own inverse, a move which replaces some edges by others updates the fingerprint in O(1):
+// the keys of the removed edges and of the added edges are XORed into it.
+public final class TourHash {
+
+    private TourHash() {
+    }
+
+    // method which returns the key of the edge between cities a and b (the same as the key of the edge from b to a)
+    public static long edge(int a, int b) {
+        long low = Math.min(a, b);
+        long high = Math.max(a, b);
+        return mix((high << 32) | low);
+    }
+
+    // method which returns the fingerprint of the tour which visits the cities in the order of the path
+    public static long of(int[] path) {
+        return of(path, 0, path.length);
+    }
+    // the same for the path of the given length which starts at the given offset of an array (see Population)
+    public static long of(int[] tours, int offset, int pathLength) {
+        long hash = 0;
+        for (int i = 0; i < pathLength; i++) {
+            hash ^= edge(tours[offset + i], tours[offset + (i + 1 == pathLength ? 0 : i + 1)]);
+        }
+        return hash;
+    }
+
+    // method which returns the value to XOR into the fingerprint of a path when the cities from position a to
+    // position b are reversed, which replaces the edge entering the segment and the edge leaving it
+    public static long reversalDelta(int[] path, int a, int b) {
+        return reversalDelta(path, 0, path.length, a, b);
+    }
+    public static long reversalDelta(int[] tours, int offset, int pathLength, int a, int b) {
+        // reversing nothing, or the whole path (which is the same tour travelled backwards), changes nothing
+        if (a == b || (a == 0 && b == pathLength - 1)) {
+            return 0;
+        }
+        int before = tours[offset + (a == 0 ? pathLength - 1 : a - 1)];
+        int after = tours[offset + (b == pathLength - 1 ? 0 : b + 1)];
+        int first = tours[offset + a];
+        int last = tours[offset + b];
+        return edge(before, first) ^ edge(last, after) ^ edge(before, last) ^ edge(first, after);
+    }
+
+    // method which returns whether two paths of the given length, which start at the given offsets of two arrays (see
+    // Population), are the same tour, i.e. whether one is a rotation of the other, possibly travelled backwards.
+    // This takes O(n) time and is only needed when two fingerprints are equal
+    public static boolean sameTour(int[] tours1, int offset1, int[] tours2, int offset2, int pathLength) {
+        if (pathLength == 0) {
+            return true;
+        }
+        // find where path2 visits the first city of path1
+        int offset = -1;
+        for (int i = 0; i < pathLength; i++) {
+            if (tours2[offset2 + i] == tours1[offset1]) {
+                offset = i;
+                break;
+            }
+        }
+        if (offset == -1) {
+            return false;
+        }
+        boolean forwards = true;
+        boolean backwards = true;
+        for (int i = 1; i < pathLength && (forwards || backwards); i++) {
+            if (tours2[offset2 + (offset + i) % pathLength] != tours1[offset1 + i]) {
+                forwards = false;
+            }
+            if (tours2[offset2 + (offset - i + pathLength) % pathLength] != tours1[offset1 + i]) {
+                backwards = false;
+            }
+        }
+        return forwards || backwards;
+    }
+
+    // the finaliser of the SplitMix64 generator, which spreads the bits of the input over the whole result
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,43 @@
+// The outcome of one run of a Solver: the shortest tour found, its length, and how the run went.
+public final class TourResult {
+
+    // the name of the algorithm and of the instance
+    final String solver;
+    final String instance;
+    // the order in which the tour visits the cities (numbered from 0), and the length of the tour
+    final int[] tour;
+    final double length;
+    // the number of generations or iterations performed, the number of tours evaluated, and why the run stopped
+    final int steps;
+    final long evaluations;
+    final TerminationPolicy.Reason stopReason;
+    // how long the run took, in milliseconds
+    final long timeMillis;
+
+    TourResult(String solver, String instance, int[] tour, double length, int steps, long evaluations,
+               TerminationPolicy.Reason stopReason, long timeMillis) {
+        this.solver = solver;
+        this.instance = instance;
+        this.tour = tour;
+        this.length = length;
+        this.steps = steps;
+        this.evaluations = evaluations;
+        this.stopReason = stopReason;
+        this.timeMillis = timeMillis;
+    }
+
+    // method which returns the tour as a string of city numbers as they appear in the TSPLIB file (starting from 1)
+    public String getPath() {
+        StringBuilder string = new StringBuilder();
+        for (int city : tour) {
+            string.append(city + 1).append(' ');
+        }
+        return string.toString();
+    }
+
+    @Override
+    public String toString() {
+        return solver + " " + instance + ": " + length + " (" + steps + " steps, " + evaluations + " evaluations, "
+                + "stopped by " + stopReason + ", " + timeMillis + "ms)";
+    }
+}
@@ -0,0 +1,30 @@
+import java.util.Random;
+
+// Tournament Selection: the fittest of a number of chromosomes chosen uniformly at random (with replacement).
+// Since the population is sorted from the fittest to the least fit chromosome, the fittest of the tournament is the
+// one at the lowest position, so a tournament of k chromosomes takes O(k) time and does not need their fitness
+public class TournamentSelection implements Selection {
+
+    // the number of chromosomes in each tournament
+    private final int tournamentSize;
+    // the size of the prepared population
+    private int populationSize;
+
+    public TournamentSelection(int tournamentSize) {
+        this.tournamentSize = Math.max(1, tournamentSize);
+    }
+
+    @Override
+    public void prepare(double[] lengths, int populationSize) {
+        this.populationSize = populationSize;
+    }
+
+    @Override
+    public int select(Random random) {
+        int winner = random.nextInt(populationSize);
+        for (int i = 1; i < tournamentSize; i++) {
+            winner = Math.min(winner, random.nextInt(populationSize));
+        }
+        return winner;
+    }
+}